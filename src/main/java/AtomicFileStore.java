@@ -0,0 +1,154 @@
+// AtomicFileStore.java - Crash-safe file writes
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.*;
+
+/**
+ * Replaces files by writing a temp file, fsyncing it and atomically renaming it over the
+ * target, so a crash leaves either the old or the new content, never a truncated file.
+ * Writes of one call are committed together: every temp file is made durable before any of
+ * them is renamed into place. Calls are serialized and each call is its own commit; writes
+ * from separate calls are not batched together. The persistence thread is the only regular
+ * writer.
+ */
+public class AtomicFileStore {
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    // Replace several files in one commit
+    public void replaceAll(Map<Path, byte[]> files) throws IOException {
+        replaceAll(files, Collections.emptyList());
+    }
+
+    // Replace several files and delete others in one commit; deletes follow the renames
+    public void replaceAll(Map<Path, byte[]> files, Collection<Path> deletions) throws IOException {
+        List<PendingWrite> writes = new ArrayList<>();
+        for (Map.Entry<Path, byte[]> file : files.entrySet()) {
+            writes.add(new PendingWrite(Kind.REPLACE, file.getKey(), file.getValue()));
+        }
+        for (Path path : deletions) {
+            writes.add(new PendingWrite(Kind.DELETE, path, null));
+        }
+        commit(writes);
+    }
+
+    public void append(Path path, byte[] content) throws IOException {
+        commit(Collections.singletonList(new PendingWrite(Kind.APPEND, path, content)));
+    }
+
+    public void delete(Path path) throws IOException {
+        commit(Collections.singletonList(new PendingWrite(Kind.DELETE, path, null)));
+    }
+
+    private synchronized void commit(List<PendingWrite> writes) throws IOException {
+        // Fold the writes into one final action per path, keeping per-path order
+        Map<Path, PendingWrite> plan = new LinkedHashMap<>();
+        for (PendingWrite write : writes) {
+            plan.put(write.path, fold(plan.get(write.path), write));
+        }
+
+        boolean committed = false;
+        try {
+            // 1. Write temp files and appends, fsyncing each once
+            Set<Path> directories = new HashSet<>();
+            for (PendingWrite write : plan.values()) {
+                directories.add(write.path.toAbsolutePath().getParent());
+                if (write.kind == Kind.REPLACE) {
+                    writeAndSync(tempPath(write.path), write.content, StandardOpenOption.TRUNCATE_EXISTING);
+                } else if (write.kind == Kind.APPEND) {
+                    writeAndSync(write.path, write.content, StandardOpenOption.APPEND);
+                }
+            }
+
+            // 2. Atomically move the durable temp files into place, then apply deletes
+            for (PendingWrite write : plan.values()) {
+                if (write.kind == Kind.REPLACE) {
+                    moveIntoPlace(tempPath(write.path), write.path);
+                } else if (write.kind == Kind.DELETE) {
+                    Files.deleteIfExists(write.path);
+                }
+            }
+
+            // 3. Make the renames themselves durable
+            for (Path directory : directories) {
+                syncDirectory(directory);
+            }
+            committed = true;
+        } finally {
+            if (!committed) {
+                // Whatever the failure, leave no temp files behind; each target keeps its old or new content
+                for (PendingWrite write : plan.values()) {
+                    if (write.kind == Kind.REPLACE) {
+                        deleteQuietly(tempPath(write.path));
+                    }
+                }
+            }
+        }
+    }
+
+    private PendingWrite fold(PendingWrite previous, PendingWrite next) {
+        if (previous == null || next.kind != Kind.APPEND) {
+            return next;
+        }
+        if (previous.kind == Kind.DELETE) {
+            return new PendingWrite(Kind.REPLACE, next.path, next.content);
+        }
+        byte[] merged = Arrays.copyOf(previous.content, previous.content.length + next.content.length);
+        System.arraycopy(next.content, 0, merged, previous.content.length, next.content.length);
+        return new PendingWrite(previous.kind, next.path, merged);
+    }
+
+    private void writeAndSync(Path path, byte[] content, StandardOpenOption mode) throws IOException {
+        try (FileChannel channel = FileChannel.open(path,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, mode)) {
+            ByteBuffer buffer = ByteBuffer.wrap(content);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(true);
+        }
+    }
+
+    private void moveIntoPlace(Path temp, Path target) throws IOException {
+        try {
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private void syncDirectory(Path directory) {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            // Not supported on every platform (e.g. Windows); the rename is still atomic
+        }
+    }
+
+    private void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException | RuntimeException e) {
+            // Best effort; a stale temp file is truncated by the next write anyway
+        }
+    }
+
+    private Path tempPath(Path path) {
+        return path.resolveSibling(path.getFileName() + TEMP_SUFFIX);
+    }
+
+    private enum Kind { REPLACE, APPEND, DELETE }
+
+    private static class PendingWrite {
+        final Kind kind;
+        final Path path;
+        final byte[] content;
+
+        PendingWrite(Kind kind, Path path, byte[] content) {
+            this.kind = kind;
+            this.path = path;
+            this.content = content;
+        }
+    }
+}
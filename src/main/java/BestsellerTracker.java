@@ -0,0 +1,91 @@
+// BestsellerTracker.java - Popularity rankings overall and per category
+import java.util.*;
+
+/**
+ * Keeps the catalog ranked by popularity, both overall and within each category, so the top N
+ * books are read off the front of a ranking (O(N + log n)) instead of sorting the catalog.
+ * Rankings are full orderings rather than bounded top-K heaps, because cancellations lower
+ * popularity and a bounded heap could not tell which book moves up to replace one that drops.
+ */
+public class BestsellerTracker {
+    private final SortedBookIndex overall;
+    private final Map<String, SortedBookIndex> byCategory = new HashMap<>();
+    private final Map<String, String> categoryById = new HashMap<>();
+
+    public BestsellerTracker(List<Book> books) {
+        overall = new SortedBookIndex(books, Book::getPopularity);
+        for (Book book : books) {
+            addToCategory(book);
+        }
+    }
+
+    public synchronized void add(Book book) {
+        overall.add(book);
+        addToCategory(book);
+    }
+
+    // Re-ranks the book after its popularity (or category) changed
+    public synchronized void update(Book book) {
+        overall.update(book);
+        String oldKey = categoryById.get(book.getId());
+        String newKey = CategoryIndex.normalize(book.getCategory());
+        if (oldKey != null && !oldKey.equals(newKey)) {
+            removeFromCategory(book.getId());
+        }
+        if (categoryById.containsKey(book.getId())) {
+            byCategory.get(newKey).update(book);
+        } else {
+            addToCategory(book);
+        }
+    }
+
+    public synchronized void remove(String bookId) {
+        overall.remove(bookId);
+        removeFromCategory(bookId);
+    }
+
+    // The whole catalog by popularity, for sorted browsing
+    public SortedBookIndex getRanking() {
+        return overall;
+    }
+
+    public List<Book> top(int limit) {
+        return first(overall, limit);
+    }
+
+    public synchronized List<Book> topInCategory(String category, int limit) {
+        SortedBookIndex ranking = byCategory.get(CategoryIndex.normalize(category));
+        return ranking == null ? new ArrayList<>() : first(ranking, limit);
+    }
+
+    private List<Book> first(SortedBookIndex ranking, int limit) {
+        List<Book> top = new ArrayList<>();
+        if (limit <= 0) {
+            return top;
+        }
+        ranking.scan(null, null, true, book -> {
+            top.add(book);
+            return top.size() < limit;
+        });
+        return top;
+    }
+
+    private void addToCategory(Book book) {
+        String key = CategoryIndex.normalize(book.getCategory());
+        categoryById.put(book.getId(), key);
+        byCategory.computeIfAbsent(key, k -> new SortedBookIndex(new ArrayList<>(), Book::getPopularity))
+                  .add(book);
+    }
+
+    private void removeFromCategory(String bookId) {
+        String key = categoryById.remove(bookId);
+        if (key == null) {
+            return;
+        }
+        SortedBookIndex ranking = byCategory.get(key);
+        ranking.remove(bookId);
+        if (ranking.size() == 0) {
+            byCategory.remove(key);
+        }
+    }
+}
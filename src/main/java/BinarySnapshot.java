@@ -0,0 +1,265 @@
+// BinarySnapshot.java - Compact binary snapshot format for the catalog and order log
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.*;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * File layout (big-endian):
+ *   header        magic, kind, recordCount, stringCount
+ *   string table  [int byteLength][UTF-8 bytes] ... each distinct string once
+ *   records       fixed fields in order; strings are int refs into the table (-1 for null)
+ *
+ * There are no offset tables: the string table is decoded first and the records are then
+ * decoded in one sequential pass. Version 1 files (records first, then the string table and
+ * per-record and per-string offset indexes) are still read.
+ */
+public class BinarySnapshot {
+    private static final int MAGIC = 0x424B5332; // "BKS2"
+    private static final int MAGIC_V1 = 0x424B5331; // "BKS1"
+    private static final int KIND_BOOKS = 1;
+    private static final int KIND_ORDERS = 2;
+    private static final int HEADER_SIZE = 16;
+    private static final int HEADER_SIZE_V1 = 32;
+    private static final int NULL_STRING = -1;
+
+    // ============== WRITING ==============
+
+    public static byte[] writeBooks(List<BasicBook> books) {
+        SnapshotWriter writer = new SnapshotWriter(KIND_BOOKS);
+        for (BasicBook book : books) {
+            DataOutputStream out = writer.beginRecord();
+            try {
+                writer.writeString(out, book.getId());
+                writer.writeString(out, book.getTitle());
+                writer.writeString(out, book.getAuthor());
+                writer.writeString(out, book.getCategory());
+                writer.writeString(out, book.getEdition());
+                writer.writeString(out, book.getCoverImage());
+                out.writeDouble(book.getOriginalPrice());
+                out.writeInt(book.getStock());
+                out.writeInt(book.getPopularity());
+                out.writeBoolean(book.getFeaturedMetadata());
+                out.writeDouble(book.getDiscountPercentageMetadata());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return writer.toByteArray();
+    }
+
+    public static byte[] writeOrders(List<Order> orders) {
+        SnapshotWriter writer = new SnapshotWriter(KIND_ORDERS);
+        for (Order order : orders) {
+            DataOutputStream out = writer.beginRecord();
+            try {
+                writer.writeString(out, order.getOrderId());
+                writer.writeString(out, order.getCustomerUsername());
+                writer.writeString(out, order.getStatus());
+                out.writeDouble(order.getTotalAmount());
+                LocalDateTime date = order.getOrderDate();
+                out.writeLong(date.toEpochSecond(ZoneOffset.UTC));
+                out.writeInt(date.getNano());
+                List<OrderItem> items = order.getItems();
+                out.writeInt(items.size());
+                for (OrderItem item : items) {
+                    writer.writeString(out, item.getBookId());
+                    writer.writeString(out, item.getBookTitle());
+                    writer.writeString(out, item.getBookAuthor());
+                    writer.writeString(out, item.getBookCategory());
+                    out.writeInt(item.getQuantity());
+                    out.writeDouble(item.getPriceAtPurchase());
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return writer.toByteArray();
+    }
+
+    // ============== READING ==============
+
+    // Books are wrapped with their decorators by the caller-supplied function as they are decoded
+    public static List<Book> readBooks(Path path, Function<BasicBook, Book> decorator) throws IOException {
+        SnapshotReader reader = new SnapshotReader(path, KIND_BOOKS);
+        ByteBuffer in = reader.buffer;
+        return reader.decodeAll(() -> {
+            BasicBook book = new BasicBook();
+            book.setId(reader.string());
+            book.setTitle(reader.string());
+            book.setAuthor(reader.string());
+            book.setCategory(reader.string());
+            book.setEdition(reader.string());
+            book.setCoverImage(reader.string());
+            book.setPrice(in.getDouble());
+            book.setStock(in.getInt());
+            book.setPopularity(in.getInt());
+            book.setFeatured(in.get() != 0);
+            book.setDiscountPercentage(in.getDouble());
+            return decorator.apply(book);
+        });
+    }
+
+    public static List<Order> readOrders(Path path) throws IOException {
+        SnapshotReader reader = new SnapshotReader(path, KIND_ORDERS);
+        ByteBuffer in = reader.buffer;
+        return reader.decodeAll(() -> {
+            String orderId = reader.string();
+            String customerUsername = reader.string();
+            String status = reader.string();
+            double totalAmount = in.getDouble();
+            long epochSecond = in.getLong();
+            LocalDateTime orderDate = LocalDateTime.ofEpochSecond(epochSecond, in.getInt(), ZoneOffset.UTC);
+            int itemCount = in.getInt();
+            List<OrderItem> items = new ArrayList<>(itemCount);
+            for (int i = 0; i < itemCount; i++) {
+                String bookId = reader.string();
+                String bookTitle = reader.string();
+                String bookAuthor = reader.string();
+                String bookCategory = reader.string();
+                int quantity = in.getInt();
+                items.add(new OrderItem(bookId, bookTitle, bookAuthor, bookCategory, quantity, in.getDouble()));
+            }
+            return new Order(orderId, customerUsername, items, totalAmount, status, orderDate);
+        });
+    }
+
+    // ============== HELPER CLASSES ==============
+
+    private static class SnapshotWriter {
+        private final int kind;
+        private final ByteArrayOutputStream records = new ByteArrayOutputStream();
+        private final DataOutputStream recordsOut = new DataOutputStream(records);
+        private final Map<String, Integer> stringIds = new HashMap<>();
+        private final List<String> strings = new ArrayList<>();
+        private int recordCount;
+
+        SnapshotWriter(int kind) {
+            this.kind = kind;
+        }
+
+        DataOutputStream beginRecord() {
+            recordCount++;
+            return recordsOut;
+        }
+
+        // Strings are interned into the table so repeated authors/categories are stored once
+        void writeString(DataOutputStream out, String value) throws IOException {
+            if (value == null) {
+                out.writeInt(NULL_STRING);
+                return;
+            }
+            Integer id = stringIds.get(value);
+            if (id == null) {
+                id = strings.size();
+                stringIds.put(value, id);
+                strings.add(value);
+            }
+            out.writeInt(id);
+        }
+
+        byte[] toByteArray() {
+            try {
+                ByteArrayOutputStream file = new ByteArrayOutputStream(HEADER_SIZE + records.size() + 16 * strings.size());
+                DataOutputStream out = new DataOutputStream(file);
+                out.writeInt(MAGIC);
+                out.writeInt(kind);
+                out.writeInt(recordCount);
+                out.writeInt(strings.size());
+                for (String value : strings) {
+                    byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+                    out.writeInt(bytes.length);
+                    out.write(bytes);
+                }
+                recordsOut.flush();
+                records.writeTo(out);
+                out.flush();
+                return file.toByteArray();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    private static class SnapshotReader {
+        final ByteBuffer buffer; // positioned at the next field to decode
+        private final int recordCount;
+        private final boolean lengthPrefixed; // version 1 records start with their length
+        private final String[] strings;
+
+        SnapshotReader(Path path, int expectedKind) throws IOException {
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                if (channel.size() > Integer.MAX_VALUE) {
+                    throw new IOException("Snapshot too large to read: " + path);
+                }
+                ByteBuffer content = ByteBuffer.allocate((int) channel.size());
+                while (content.hasRemaining() && channel.read(content) >= 0) {
+                    // read until the buffer is full
+                }
+                if (content.hasRemaining()) {
+                    throw new IOException("Snapshot truncated while reading: " + path);
+                }
+                content.flip();
+                this.buffer = content;
+            }
+            int magic = buffer.limit() < HEADER_SIZE ? 0 : buffer.getInt(0);
+            if ((magic != MAGIC && magic != MAGIC_V1) || buffer.getInt(4) != expectedKind) {
+                throw new IOException("Not a valid snapshot file: " + path);
+            }
+            this.recordCount = buffer.getInt(8);
+            this.strings = new String[buffer.getInt(12)];
+            this.lengthPrefixed = magic == MAGIC_V1;
+            try {
+                if (lengthPrefixed) {
+                    // The string table follows the records; find each string through the string index
+                    int stringIndexOffset = (int) buffer.getLong(24);
+                    for (int i = 0; i < strings.length; i++) {
+                        buffer.position((int) buffer.getLong(stringIndexOffset + 8 * i));
+                        strings[i] = readUtf8();
+                    }
+                    buffer.position(HEADER_SIZE_V1);
+                } else {
+                    buffer.position(HEADER_SIZE);
+                    for (int i = 0; i < strings.length; i++) {
+                        strings[i] = readUtf8();
+                    }
+                }
+            } catch (RuntimeException e) {
+                throw new IOException("Not a valid snapshot file: " + path, e);
+            }
+        }
+
+        <T> List<T> decodeAll(Supplier<T> decoder) throws IOException {
+            List<T> records = new ArrayList<>(recordCount);
+            try {
+                for (int i = 0; i < recordCount; i++) {
+                    if (lengthPrefixed) {
+                        buffer.getInt();
+                    }
+                    records.add(decoder.get());
+                }
+            } catch (RuntimeException e) {
+                throw new IOException("Snapshot record " + records.size() + " is corrupt", e);
+            }
+            return records;
+        }
+
+        String string() {
+            int id = buffer.getInt();
+            return id == NULL_STRING ? null : strings[id];
+        }
+
+        private String readUtf8() {
+            byte[] bytes = new byte[buffer.getInt()];
+            buffer.get(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    }
+}
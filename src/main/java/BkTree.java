@@ -0,0 +1,108 @@
+// BkTree.java - BK-tree over words for bounded edit-distance lookup
+import java.util.*;
+
+/**
+ * A BK-tree keyed by Levenshtein distance. Each child edge is labelled with its distance to the
+ * parent word, so by the triangle inequality a search for words within k of the query only
+ * descends edges labelled d-k..d+k (d being the query's distance to the node), and visits a
+ * small part of the vocabulary for small k. Words cannot be removed; callers skip words that
+ * are no longer in use and rebuild the tree when too many of them pile up.
+ */
+public class BkTree {
+    private Node root;
+
+    private static class Node {
+        final String word;
+        Map<Integer, Node> children;
+
+        Node(String word) {
+            this.word = word;
+        }
+    }
+
+    // Receives each word found by search() with its distance to the query
+    public interface Visitor {
+        void match(String word, int distance);
+    }
+
+    // False if the word is already in the tree
+    public boolean add(String word) {
+        if (root == null) {
+            root = new Node(word);
+            return true;
+        }
+        Node node = root;
+        while (true) {
+            int distance = distance(word, node.word);
+            if (distance == 0) {
+                return false;
+            }
+            if (node.children == null) {
+                node.children = new HashMap<>(4);
+            }
+            Node child = node.children.get(distance);
+            if (child == null) {
+                node.children.put(distance, new Node(word));
+                return true;
+            }
+            node = child;
+        }
+    }
+
+    /**
+     * Reports every word within maxDistance of the query. Stops early once System.nanoTime()
+     * passes deadline and returns false in that case, having reported only part of the matches.
+     */
+    public boolean search(String query, int maxDistance, long deadline, Visitor visitor) {
+        if (root == null) {
+            return true;
+        }
+        Deque<Node> pending = new ArrayDeque<>();
+        pending.push(root);
+        int visited = 0;
+        while (!pending.isEmpty()) {
+            if ((++visited & 63) == 0 && System.nanoTime() - deadline > 0) {
+                return false;
+            }
+            Node node = pending.pop();
+            int distance = distance(query, node.word);
+            if (distance <= maxDistance) {
+                visitor.match(node.word, distance);
+            }
+            if (node.children != null) {
+                for (Map.Entry<Integer, Node> child : node.children.entrySet()) {
+                    if (Math.abs(child.getKey() - distance) <= maxDistance) {
+                        pending.push(child.getValue());
+                    }
+                }
+            }
+        }
+        return true;
+    }
+
+    // Levenshtein distance (insertions, deletions and substitutions)
+    static int distance(String a, String b) {
+        if (a.length() < b.length()) {
+            String swap = a;
+            a = b;
+            b = swap;
+        }
+        int[] previous = new int[b.length() + 1];
+        int[] current = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            char ca = a.charAt(i - 1);
+            for (int j = 1; j <= b.length(); j++) {
+                int substitution = previous[j - 1] + (ca == b.charAt(j - 1) ? 0 : 1);
+                current[j] = Math.min(substitution, Math.min(previous[j], current[j - 1]) + 1);
+            }
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return previous[b.length()];
+    }
+}
@@ -0,0 +1,106 @@
+// BookFacets.java - Facet counts (category, price band, flags) for a catalog query
+import java.util.*;
+
+/**
+ * Counts for faceted navigation, gathered in the same pass that evaluates the query. Each facet
+ * is counted over the books that pass every other criterion of the query, so selecting a
+ * category still shows how many books the other categories would give, and "in stock" shows how
+ * many results remain if that filter is switched on.
+ */
+public class BookFacets {
+    // Lower bounds of the price bands (effective price); the last band is open-ended
+    private static final double[] BAND_STARTS = {0, 10, 20, 50, 100};
+
+    private final Map<String, Integer> categoryCounts = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+    private final int[] bandCounts = new int[BAND_STARTS.length];
+    private int featuredCount;
+    private int discountedCount;
+    private int inStockCount;
+
+    /**
+     * Adds one book. The flags say whether it passes the query's category, price, featured,
+     * discounted and in-stock criteria (true when the query does not use that criterion).
+     */
+    void count(Book book, String category, boolean categoryOk, boolean priceOk,
+               boolean featuredOk, boolean discountedOk, boolean stockOk) {
+        if (priceOk && featuredOk && discountedOk && stockOk) {
+            categoryCounts.merge(category, 1, Integer::sum);
+        }
+        if (categoryOk && featuredOk && discountedOk && stockOk) {
+            bandCounts[band(book.getPrice())]++;
+        }
+        if (categoryOk && priceOk && discountedOk && stockOk && book.isFeatured()) {
+            featuredCount++;
+        }
+        if (categoryOk && priceOk && featuredOk && stockOk && book.isDiscounted()) {
+            discountedCount++;
+        }
+        if (categoryOk && priceOk && featuredOk && discountedOk && book.getStock() > 0) {
+            inStockCount++;
+        }
+    }
+
+    // Bitmap path (BookFlagIndex): counts already computed per category and flag
+
+    void addCategoryCount(String category, int count) {
+        categoryCounts.merge(category, count, Integer::sum);
+    }
+
+    void setFlagCounts(int featured, int discounted, int inStock) {
+        featuredCount = featured;
+        discountedCount = discounted;
+        inStockCount = inStock;
+    }
+
+    void setBandCount(int band, int count) {
+        bandCounts[band] = count;
+    }
+
+    // Category name -> number of books, in name order
+    public Map<String, Integer> getCategoryCounts() {
+        return Collections.unmodifiableMap(categoryCounts);
+    }
+
+    // Band label (e.g. "$10 - $20", "$100+") -> number of books, cheapest band first
+    public Map<String, Integer> getPriceBandCounts() {
+        Map<String, Integer> counts = new LinkedHashMap<>();
+        for (int i = 0; i < BAND_STARTS.length; i++) {
+            counts.put(bandLabel(i), bandCounts[i]);
+        }
+        return counts;
+    }
+
+    public int getFeaturedCount() { return featuredCount; }
+    public int getDiscountedCount() { return discountedCount; }
+    public int getInStockCount() { return inStockCount; }
+
+    // Price range of a band label, for turning a selected band into BookQuery.priceRange
+    public static double[] bandRange(String label) {
+        for (int i = 0; i < BAND_STARTS.length; i++) {
+            if (bandLabel(i).equals(label)) {
+                // The upper bound is inclusive in BookQuery, so stop just below the next band
+                double max = i + 1 < BAND_STARTS.length ? Math.nextDown(BAND_STARTS[i + 1]) : Double.MAX_VALUE;
+                return new double[] {BAND_STARTS[i], max};
+            }
+        }
+        throw new IllegalArgumentException("Unknown price band: " + label);
+    }
+
+    static int bandCount() {
+        return BAND_STARTS.length;
+    }
+
+    static int band(double price) {
+        int band = 0;
+        while (band + 1 < BAND_STARTS.length && price >= BAND_STARTS[band + 1]) {
+            band++;
+        }
+        return band;
+    }
+
+    private static String bandLabel(int band) {
+        return band + 1 < BAND_STARTS.length
+                ? String.format("$%.0f - $%.0f", BAND_STARTS[band], BAND_STARTS[band + 1])
+                : String.format("$%.0f+", BAND_STARTS[band]);
+    }
+}
@@ -0,0 +1,233 @@
+// BookFlagIndex.java - Bitmaps over book flags, stock state and category
+import java.util.*;
+
+/**
+ * One bitmap per flag (featured, discounted, in stock, low stock), per category and per facet
+ * price band (see BookFacets), over dense
+ * book ordinals in catalog order. A filter combination is answered by AND-ing bitmaps instead of
+ * asking every book's decorator chain, and counts are bitmap cardinalities. Flags are read when
+ * a book is indexed and re-read through update(), so callers report stock and decorator changes.
+ * Removed books leave an empty ordinal behind, as in BookSearchIndex.
+ */
+public class BookFlagIndex {
+    // A book with 1..LOW_STOCK_THRESHOLD copies left counts as low on stock
+    public static final int LOW_STOCK_THRESHOLD = 5;
+
+    private final List<Book> books = new ArrayList<>(); // by ordinal; null once removed
+    private final Map<String, Integer> ordinals = new HashMap<>();
+    private final BitSet live = new BitSet();
+    private final BitSet featured = new BitSet();
+    private final BitSet discounted = new BitSet();
+    private final BitSet inStock = new BitSet();
+    private final BitSet lowStock = new BitSet();
+    private final BitSet[] priceBands = new BitSet[BookFacets.bandCount()];
+    private final Map<String, BitSet> byCategory = new HashMap<>();
+    private final Map<String, String> categoryNames = new HashMap<>(); // normalized -> as first seen
+    private final List<String> categoryKeys = new ArrayList<>(); // by ordinal, normalized
+
+    public BookFlagIndex(List<Book> catalog) {
+        for (int i = 0; i < priceBands.length; i++) {
+            priceBands[i] = new BitSet();
+        }
+        for (Book book : catalog) {
+            add(book);
+        }
+    }
+
+    public synchronized void add(Book book) {
+        int ordinal = books.size();
+        books.add(book);
+        categoryKeys.add(null);
+        ordinals.put(book.getId(), ordinal);
+        live.set(ordinal);
+        setFlags(ordinal, book);
+    }
+
+    // Re-reads the flags, stock and category of the book with this id (or its replacement)
+    public synchronized void update(Book book) {
+        Integer ordinal = ordinals.get(book.getId());
+        if (ordinal == null) {
+            add(book);
+            return;
+        }
+        books.set(ordinal, book);
+        clearFlags(ordinal);
+        setFlags(ordinal, book);
+    }
+
+    public synchronized void remove(String bookId) {
+        Integer ordinal = ordinals.remove(bookId);
+        if (ordinal != null) {
+            clearFlags(ordinal);
+            live.clear(ordinal);
+            books.set(ordinal, null);
+        }
+    }
+
+    /**
+     * Books (in catalog order) in the category, if not null, that also have every requested
+     * flag. An unknown category selects nothing.
+     */
+    public synchronized List<Book> select(String category, boolean featuredOnly, boolean discountedOnly,
+                                          boolean inStockOnly, boolean lowStockOnly) {
+        BitSet selected = mask(category, featuredOnly, discountedOnly, inStockOnly, lowStockOnly);
+        List<Book> result = new ArrayList<>(selected.cardinality());
+        for (int i = selected.nextSetBit(0); i >= 0; i = selected.nextSetBit(i + 1)) {
+            result.add(books.get(i));
+        }
+        return result;
+    }
+
+    // The same books as select(), kept as a bitmap so a page can be taken without listing them all
+    public synchronized Selection selection(String category, boolean featuredOnly, boolean discountedOnly,
+                                            boolean inStockOnly, boolean lowStockOnly) {
+        return new Selection(mask(category, featuredOnly, discountedOnly, inStockOnly, lowStockOnly));
+    }
+
+    /**
+     * Facet counts for a query without text or price range, from bitmap cardinalities: each
+     * facet is counted over the books passing the other criteria, as in the per-book pass.
+     */
+    public synchronized BookFacets facets(String category, boolean featuredOnly, boolean discountedOnly,
+                                          boolean inStockOnly) {
+        BookFacets facets = new BookFacets();
+        BitSet flags = mask(null, featuredOnly, discountedOnly, inStockOnly, false);
+        for (Map.Entry<String, BitSet> entry : byCategory.entrySet()) {
+            int count = andCardinality(entry.getValue(), flags);
+            if (count > 0) {
+                facets.addCategoryCount(categoryNames.get(entry.getKey()), count);
+            }
+        }
+        facets.setFlagCounts(
+                andCardinality(mask(category, false, discountedOnly, inStockOnly, false), featured),
+                andCardinality(mask(category, featuredOnly, false, inStockOnly, false), discounted),
+                andCardinality(mask(category, featuredOnly, discountedOnly, false, false), inStock));
+        countBands(facets, category, featuredOnly, discountedOnly, inStockOnly);
+        return facets;
+    }
+
+    // Sets the price band counts (which ignore any price filter) from the band bitmaps
+    public synchronized void countBands(BookFacets facets, String category, boolean featuredOnly,
+                                        boolean discountedOnly, boolean inStockOnly) {
+        BitSet others = mask(category, featuredOnly, discountedOnly, inStockOnly, false);
+        for (int band = 0; band < priceBands.length; band++) {
+            facets.setBandCount(band, andCardinality(priceBands[band], others));
+        }
+    }
+
+    public synchronized int size() {
+        return ordinals.size();
+    }
+
+    /**
+     * A filter combination's bitmap as it was when selection() was called. Its size is the
+     * cardinality; a page is read off the bitmap in catalog order, or taken from another
+     * ordering (a SortedBookIndex scan) by testing each book with contains().
+     */
+    public class Selection {
+        private final BitSet bits;
+        private final int size;
+
+        private Selection(BitSet bits) {
+            this.bits = bits;
+            this.size = bits.cardinality();
+        }
+
+        public int size() {
+            return size;
+        }
+
+        public boolean contains(Book book) {
+            synchronized (BookFlagIndex.this) {
+                Integer ordinal = ordinals.get(book.getId());
+                return ordinal != null && bits.get(ordinal);
+            }
+        }
+
+        // Up to limit books in catalog order, skipping the first offset
+        public List<Book> page(int offset, int limit) {
+            List<Book> page = new ArrayList<>(Math.max(0, Math.min(limit, size - offset)));
+            synchronized (BookFlagIndex.this) {
+                int position = 0;
+                for (int i = bits.nextSetBit(0); i >= 0 && page.size() < limit; i = bits.nextSetBit(i + 1)) {
+                    Book book = books.get(i);
+                    if (book != null && position++ >= offset) {
+                        page.add(book);
+                    }
+                }
+            }
+            return page;
+        }
+    }
+
+    // ============== INTERNALS ==============
+
+    private BitSet mask(String category, boolean featuredOnly, boolean discountedOnly,
+                        boolean inStockOnly, boolean lowStockOnly) {
+        BitSet mask = (BitSet) (category == null ? live : categoryBits(category)).clone();
+        if (featuredOnly) {
+            mask.and(featured);
+        }
+        if (discountedOnly) {
+            mask.and(discounted);
+        }
+        if (inStockOnly) {
+            mask.and(inStock);
+        }
+        if (lowStockOnly) {
+            mask.and(lowStock);
+        }
+        return mask;
+    }
+
+    private BitSet categoryBits(String category) {
+        BitSet bits = byCategory.get(CategoryIndex.normalize(category));
+        return bits == null ? new BitSet() : bits;
+    }
+
+    private static int andCardinality(BitSet a, BitSet b) {
+        BitSet both = (BitSet) a.clone();
+        both.and(b);
+        return both.cardinality();
+    }
+
+    private void setFlags(int ordinal, Book book) {
+        if (book.isFeatured()) {
+            featured.set(ordinal);
+        }
+        if (book.isDiscounted()) {
+            discounted.set(ordinal);
+        }
+        priceBands[BookFacets.band(book.getPrice())].set(ordinal);
+        int stock = book.getStock();
+        if (stock > 0) {
+            inStock.set(ordinal);
+            if (stock <= LOW_STOCK_THRESHOLD) {
+                lowStock.set(ordinal);
+            }
+        }
+        String key = CategoryIndex.normalize(book.getCategory());
+        categoryNames.putIfAbsent(key, book.getCategory() == null ? "" : book.getCategory().trim());
+        byCategory.computeIfAbsent(key, k -> new BitSet()).set(ordinal);
+        categoryKeys.set(ordinal, key);
+    }
+
+    private void clearFlags(int ordinal) {
+        featured.clear(ordinal);
+        discounted.clear(ordinal);
+        inStock.clear(ordinal);
+        lowStock.clear(ordinal);
+        for (BitSet band : priceBands) {
+            band.clear(ordinal);
+        }
+        String key = categoryKeys.set(ordinal, null);
+        BitSet bits = key == null ? null : byCategory.get(key);
+        if (bits != null) {
+            bits.clear(ordinal);
+            if (bits.isEmpty()) {
+                byCategory.remove(key);
+                categoryNames.remove(key);
+            }
+        }
+    }
+}
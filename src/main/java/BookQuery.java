@@ -0,0 +1,139 @@
+// BookQuery.java - Criteria for a combined catalog query (search + filters + sort + page)
+
+/**
+ * All criteria are optional and combined with AND. Setters return this so a query can be
+ * built in one expression, e.g. new BookQuery().text("code").category("IT").page(0, 24).
+ */
+public class BookQuery {
+    public enum SortKey { DEFAULT, PRICE_ASC, PRICE_DESC, POPULARITY }
+
+    private String text;
+    private String category;
+    private Double minPrice;
+    private Double maxPrice;
+    private boolean featuredOnly;
+    private boolean discountedOnly;
+    private boolean inStockOnly;
+    private boolean includeFacets;
+    private SortKey sortKey = SortKey.DEFAULT;
+    private int offset;
+    private int limit = Integer.MAX_VALUE;
+
+    // Case-insensitive substring of title or author; blank means no text filter
+    public BookQuery text(String text) {
+        this.text = text;
+        return this;
+    }
+
+    // Category name, matched like the category index (trimmed, case-insensitive); null means all
+    public BookQuery category(String category) {
+        this.category = category;
+        return this;
+    }
+
+    // Inclusive bounds on the effective (discounted) price; null leaves a side open
+    public BookQuery priceRange(Double minPrice, Double maxPrice) {
+        this.minPrice = minPrice;
+        this.maxPrice = maxPrice;
+        return this;
+    }
+
+    public BookQuery featuredOnly(boolean featuredOnly) {
+        this.featuredOnly = featuredOnly;
+        return this;
+    }
+
+    public BookQuery discountedOnly(boolean discountedOnly) {
+        this.discountedOnly = discountedOnly;
+        return this;
+    }
+
+    public BookQuery inStockOnly(boolean inStockOnly) {
+        this.inStockOnly = inStockOnly;
+        return this;
+    }
+
+    // Also count the matches per category, price band and flag (see BookFacets)
+    public BookQuery includeFacets(boolean includeFacets) {
+        this.includeFacets = includeFacets;
+        return this;
+    }
+
+    public BookQuery sortBy(SortKey sortKey) {
+        this.sortKey = sortKey == null ? SortKey.DEFAULT : sortKey;
+        return this;
+    }
+
+    public BookQuery page(int offset, int limit) {
+        if (offset < 0 || limit < 0) {
+            throw new IllegalArgumentException("Offset and limit must not be negative");
+        }
+        this.offset = offset;
+        this.limit = limit;
+        return this;
+    }
+
+    public String getText() { return text; }
+    public String getCategory() { return category; }
+    public Double getMinPrice() { return minPrice; }
+    public Double getMaxPrice() { return maxPrice; }
+    public boolean isFeaturedOnly() { return featuredOnly; }
+    public boolean isDiscountedOnly() { return discountedOnly; }
+    public boolean isInStockOnly() { return inStockOnly; }
+    public boolean isIncludeFacets() { return includeFacets; }
+    public SortKey getSortKey() { return sortKey; }
+    public int getOffset() { return offset; }
+    public int getLimit() { return limit; }
+
+    public boolean hasText() {
+        return text != null && !text.isEmpty();
+    }
+
+    public boolean hasCategory() {
+        return category != null && !category.isEmpty();
+    }
+
+    // Criteria normalized the way they are matched, so queries with equal keys have equal results
+    public String cacheKey() {
+        return String.join("\u0000",
+                hasCategory() ? CategoryIndex.normalize(category) : "",
+                String.valueOf(minPrice), String.valueOf(maxPrice),
+                String.valueOf(featuredOnly), String.valueOf(discountedOnly),
+                String.valueOf(inStockOnly), String.valueOf(includeFacets), sortKey.name(),
+                String.valueOf(offset), String.valueOf(limit),
+                hasText() ? BookSearchIndex.normalize(text) : "");
+    }
+
+    // True if the book passes every filter except the text search
+    public boolean matchesFilters(Book book) {
+        return matchesCategory(book) && matchesFeatured(book) && matchesDiscounted(book) &&
+               matchesStock(book) && matchesPrice(book);
+    }
+
+    // The single filters, each true when the query does not use it
+
+    public boolean matchesCategory(Book book) {
+        return !hasCategory() ||
+               CategoryIndex.normalize(book.getCategory()).equals(CategoryIndex.normalize(category));
+    }
+
+    public boolean matchesFeatured(Book book) {
+        return !featuredOnly || book.isFeatured();
+    }
+
+    public boolean matchesDiscounted(Book book) {
+        return !discountedOnly || book.isDiscounted();
+    }
+
+    public boolean matchesStock(Book book) {
+        return !inStockOnly || book.getStock() > 0;
+    }
+
+    public boolean matchesPrice(Book book) {
+        if (minPrice == null && maxPrice == null) {
+            return true;
+        }
+        double price = book.getPrice();
+        return (minPrice == null || price >= minPrice) && (maxPrice == null || price <= maxPrice);
+    }
+}
@@ -0,0 +1,30 @@
+// BookQueryResult.java - One page of a catalog query plus the total number of matches
+import java.util.List;
+
+public class BookQueryResult {
+    private final List<Book> books;
+    private final int totalMatches;
+    private final int offset;
+    private final BookFacets facets;
+
+    public BookQueryResult(List<Book> books, int totalMatches, int offset) {
+        this(books, totalMatches, offset, null);
+    }
+
+    public BookQueryResult(List<Book> books, int totalMatches, int offset, BookFacets facets) {
+        this.books = books;
+        this.totalMatches = totalMatches;
+        this.offset = offset;
+        this.facets = facets;
+    }
+
+    public List<Book> getBooks() { return books; }
+    public int getTotalMatches() { return totalMatches; }
+    public int getOffset() { return offset; }
+    // Null unless the query asked for facets
+    public BookFacets getFacets() { return facets; }
+
+    public boolean hasMore() {
+        return offset + books.size() < totalMatches;
+    }
+}
@@ -0,0 +1,354 @@
+// BookSearchIndex.java - Inverted index over book titles and authors
+import java.util.*;
+
+/**
+ * Answers the same question as the old scan in searchBooks - "does the lower-cased title or
+ * author contain the query?" - without touching every book.
+ *
+ * Titles and authors are split into lower-cased tokens (runs of letters/digits) and each token
+ * keeps a sorted posting list of the books containing it. Every token is also indexed by its
+ * 1-, 2- and 3-character grams, so a query fragment that is only part of a word (e.g. "artin")
+ * is found by intersecting the token sets of its trigrams and checking the few survivors.
+ * The fragments of a query are intersected, then each candidate is checked against the full
+ * query, so results are exact and in catalog order.
+ *
+ * Gram postings are kept per distinct token rather than per book, which keeps the index
+ * small: a catalog has far fewer distinct words than books.
+ *
+ * For typo-tolerant search the distinct tokens are also kept in a BK-tree, built on the first
+ * fuzzy query, so misspelt words are matched by bounded edit distance over the vocabulary
+ * instead of by computing the distance to every book.
+ */
+public class BookSearchIndex {
+    private static final int GRAM = 3;
+
+    // Per document (catalog position order); null slots are removed books
+    private final List<Book> docs = new ArrayList<>();
+    private final List<String> titles = new ArrayList<>();
+    private final List<String> authors = new ArrayList<>();
+    private final Map<String, Integer> docIds = new HashMap<>();
+
+    private final Map<String, Postings> tokenDocs = new HashMap<>();
+    private final Map<String, Set<String>> gramTokens = new HashMap<>();
+    private int liveDocs;
+    private BkTree vocabulary;
+    private int deadTokens; // in the BK-tree but no longer in any book
+
+    public BookSearchIndex(List<Book> books) {
+        for (Book book : books) {
+            add(book);
+        }
+    }
+
+    public synchronized void add(Book book) {
+        int doc = docs.size();
+        docs.add(book);
+        titles.add(normalize(book.getTitle()));
+        authors.add(normalize(book.getAuthor()));
+        docIds.put(book.getId(), doc);
+        indexTokens(doc);
+        liveDocs++;
+    }
+
+    // Replace the entry with the same id; only re-tokenizes when title or author changed
+    public synchronized void update(Book book) {
+        Integer doc = docIds.get(book.getId());
+        if (doc == null) {
+            add(book);
+            return;
+        }
+        docs.set(doc, book);
+        String title = normalize(book.getTitle());
+        String author = normalize(book.getAuthor());
+        if (title.equals(titles.get(doc)) && author.equals(authors.get(doc))) {
+            return;
+        }
+        unindexTokens(doc);
+        titles.set(doc, title);
+        authors.set(doc, author);
+        indexTokens(doc);
+    }
+
+    public synchronized void remove(String bookId) {
+        Integer doc = docIds.remove(bookId);
+        if (doc == null) {
+            return;
+        }
+        unindexTokens(doc);
+        docs.set(doc, null);
+        titles.set(doc, null);
+        authors.set(doc, null);
+        liveDocs--;
+    }
+
+    public synchronized List<Book> search(String query) {
+        String lowerQuery = normalize(query);
+        List<String> fragments = tokenize(lowerQuery);
+        if (fragments.isEmpty()) {
+            // Nothing to look up ("" or only spaces/punctuation): check every book
+            return collect(null, lowerQuery, true);
+        }
+
+        BitSet candidates = null;
+        for (String fragment : fragments) {
+            BitSet matches = docsContaining(fragment);
+            if (candidates == null) {
+                candidates = matches;
+            } else {
+                candidates.and(matches);
+            }
+            if (candidates.isEmpty()) {
+                return new ArrayList<>();
+            }
+        }
+        // A query that is a single word fragment matched inside a token needs no re-check
+        boolean verify = fragments.size() > 1 || !fragments.get(0).equals(lowerQuery);
+        return collect(candidates, lowerQuery, verify);
+    }
+
+    /**
+     * Books that have, for every word of the query, a title/author word within the allowed edit
+     * distance of it or containing it. The distance allowed for a query word is maxDistance,
+     * capped by its length (0 up to 2 letters, 1 up to 5, otherwise 2) so short words do not
+     * match everything. Books are ranked by the sum of their best distances, then catalog order.
+     * Once budgetNanos is used up, the remaining words only match words containing them; the
+     * result is then marked incomplete but holds no false matches.
+     */
+    public synchronized FuzzySearchResult fuzzySearch(String query, int maxDistance, long budgetNanos) {
+        long deadline = System.nanoTime() + budgetNanos;
+        Set<String> words = new LinkedHashSet<>(tokenize(normalize(query)));
+        if (words.isEmpty()) {
+            return new FuzzySearchResult(new ArrayList<>(), true);
+        }
+        if (vocabulary == null || deadTokens > tokenDocs.size()) {
+            buildVocabulary();
+        }
+
+        boolean complete = true;
+        Map<Integer, Integer> totals = null; // doc -> summed distance over the words so far
+        for (String word : words) {
+            Map<String, Integer> tokens = new HashMap<>();
+            for (String token : tokensContaining(word)) {
+                tokens.put(token, 0);
+            }
+            int allowed = Math.min(maxDistance, allowedDistance(word));
+            if (complete && allowed > 0) {
+                complete = vocabulary.search(word, allowed, deadline, (token, distance) -> {
+                    if (tokenDocs.containsKey(token)) {
+                        tokens.merge(token, distance, Math::min);
+                    }
+                });
+            }
+
+            Map<Integer, Integer> best = new HashMap<>();
+            for (Map.Entry<String, Integer> token : tokens.entrySet()) {
+                Postings postings = tokenDocs.get(token.getKey());
+                for (int i = 0; i < postings.size; i++) {
+                    best.merge(postings.ids[i], token.getValue(), Math::min);
+                }
+            }
+            if (totals == null) {
+                totals = best;
+            } else {
+                totals.keySet().retainAll(best.keySet());
+                totals.replaceAll((doc, total) -> total + best.get(doc));
+            }
+            if (totals.isEmpty()) {
+                break;
+            }
+        }
+
+        List<Map.Entry<Integer, Integer>> ranked = new ArrayList<>(totals.entrySet());
+        ranked.sort(Map.Entry.<Integer, Integer>comparingByValue().thenComparing(Map.Entry.comparingByKey()));
+        List<Book> results = new ArrayList<>(ranked.size());
+        for (Map.Entry<Integer, Integer> entry : ranked) {
+            results.add(docs.get(entry.getKey()));
+        }
+        return new FuzzySearchResult(results, complete);
+    }
+
+    public synchronized int size() {
+        return liveDocs;
+    }
+
+    // ============== INTERNALS ==============
+
+    private List<Book> collect(BitSet candidates, String lowerQuery, boolean verify) {
+        List<Book> results = new ArrayList<>();
+        if (candidates == null) {
+            candidates = new BitSet(docs.size());
+            candidates.set(0, docs.size());
+        }
+        for (int doc = candidates.nextSetBit(0); doc >= 0; doc = candidates.nextSetBit(doc + 1)) {
+            Book book = docs.get(doc);
+            if (book != null && (!verify ||
+                titles.get(doc).contains(lowerQuery) || authors.get(doc).contains(lowerQuery))) {
+                results.add(book);
+            }
+        }
+        return results;
+    }
+
+    // Books with a token containing the fragment (a run of letters/digits)
+    private BitSet docsContaining(String fragment) {
+        BitSet result = new BitSet(docs.size());
+        Postings exact = tokenDocs.get(fragment);
+        if (exact != null) {
+            exact.addTo(result);
+        }
+        for (String token : tokensContaining(fragment)) {
+            if (!token.equals(fragment)) {
+                tokenDocs.get(token).addTo(result);
+            }
+        }
+        return result;
+    }
+
+    private static int allowedDistance(String word) {
+        return word.length() <= 2 ? 0 : word.length() <= 5 ? 1 : 2;
+    }
+
+    private void buildVocabulary() {
+        vocabulary = new BkTree();
+        for (String token : tokenDocs.keySet()) {
+            vocabulary.add(token);
+        }
+        deadTokens = 0;
+    }
+
+    private List<String> tokensContaining(String fragment) {
+        int length = Math.min(GRAM, fragment.length());
+        // Start from the smallest gram set and check the others by substring test
+        Set<String> smallest = null;
+        for (int i = 0; i + length <= fragment.length(); i++) {
+            Set<String> tokens = gramTokens.get(fragment.substring(i, i + length));
+            if (tokens == null) {
+                return Collections.emptyList();
+            }
+            if (smallest == null || tokens.size() < smallest.size()) {
+                smallest = tokens;
+            }
+        }
+        List<String> matches = new ArrayList<>();
+        for (String token : smallest) {
+            if (token.contains(fragment)) {
+                matches.add(token);
+            }
+        }
+        return matches;
+    }
+
+    private void indexTokens(int doc) {
+        for (String token : documentTokens(doc)) {
+            Postings postings = tokenDocs.get(token);
+            if (postings == null) {
+                postings = new Postings();
+                tokenDocs.put(token, postings);
+                if (vocabulary != null && !vocabulary.add(token)) {
+                    deadTokens--; // back in use
+                }
+                for (String gram : grams(token)) {
+                    gramTokens.computeIfAbsent(gram, k -> new HashSet<>()).add(token);
+                }
+            }
+            postings.add(doc);
+        }
+    }
+
+    private void unindexTokens(int doc) {
+        for (String token : documentTokens(doc)) {
+            Postings postings = tokenDocs.get(token);
+            if (postings == null) {
+                continue;
+            }
+            postings.remove(doc);
+            if (postings.size == 0) {
+                tokenDocs.remove(token);
+                if (vocabulary != null) {
+                    deadTokens++;
+                }
+                for (String gram : grams(token)) {
+                    Set<String> tokens = gramTokens.get(gram);
+                    if (tokens != null) {
+                        tokens.remove(token);
+                        if (tokens.isEmpty()) {
+                            gramTokens.remove(gram);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    private Set<String> documentTokens(int doc) {
+        Set<String> tokens = new HashSet<>(tokenize(titles.get(doc)));
+        tokens.addAll(tokenize(authors.get(doc)));
+        return tokens;
+    }
+
+    // All 1-, 2- and 3-grams of a token
+    private static Set<String> grams(String token) {
+        Set<String> grams = new HashSet<>();
+        for (int length = 1; length <= GRAM; length++) {
+            for (int i = 0; i + length <= token.length(); i++) {
+                grams.add(token.substring(i, i + length));
+            }
+        }
+        return grams;
+    }
+
+    // Same normalization the linear search used, so results do not change
+    static String normalize(String text) {
+        return text == null ? "" : text.toLowerCase();
+    }
+
+    static List<String> tokenize(String normalized) {
+        List<String> tokens = new ArrayList<>();
+        int start = -1;
+        for (int i = 0; i <= normalized.length(); i++) {
+            boolean wordChar = i < normalized.length() && Character.isLetterOrDigit(normalized.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                tokens.add(normalized.substring(start, i));
+                start = -1;
+            }
+        }
+        return tokens;
+    }
+
+    // Sorted, growable list of document ids
+    private static class Postings {
+        int[] ids = new int[2];
+        int size;
+
+        void add(int doc) {
+            int position = Arrays.binarySearch(ids, 0, size, doc);
+            if (position >= 0) {
+                return;
+            }
+            position = -position - 1;
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            System.arraycopy(ids, position, ids, position + 1, size - position);
+            ids[position] = doc;
+            size++;
+        }
+
+        void remove(int doc) {
+            int position = Arrays.binarySearch(ids, 0, size, doc);
+            if (position < 0) {
+                return;
+            }
+            System.arraycopy(ids, position + 1, ids, position, size - position - 1);
+            size--;
+        }
+
+        void addTo(BitSet set) {
+            for (int i = 0; i < size; i++) {
+                set.set(ids[i]);
+            }
+        }
+    }
+}
@@ -1,7 +1,13 @@
 // BookStoreFacade.java - FACADE PATTERN with Auto-Save
 import java.util.*;
+import java.util.function.Supplier;
 
 public class BookStoreFacade {
+    // Catalog listings are the same for every session, so the cache is shared
+    private static final QueryResultCache queryCache = new QueryResultCache(
+            Integer.getInteger("bookstore.queryCache.size", 256),
+            Long.getLong("bookstore.queryCache.ttlSeconds", 60) * 1000);
+    
     private BookStoreSystem bookStore;
     private String currentUsername;
     private String currentUserType;
@@ -12,10 +18,13 @@ public class BookStoreFacade {
     
     // ============== USER MANAGEMENT ==============
     
+    // Returns false if the username is already taken
     public boolean registerCustomer(String username, String password, String address, String phone) {
+        if (bookStore.isUsernameTaken(username)) {
+            return false;
+        }
         User customer = UserFactory.createCustomer(username, password, address, phone);
-        bookStore.registerUser(customer);
-        return true;
+        return bookStore.registerUser(customer);
     }
     
     public String login(String username, String password) {
@@ -42,12 +51,7 @@ public class BookStoreFacade {
     }
     
     public void updateCustomerInfo(String address, String phone) {
-        Customer customer = bookStore.getCustomerByUsername(currentUsername);
-        if (customer != null) {
-            customer.setAddress(address);
-            customer.setPhone(phone);
-            bookStore.saveAllData();
-        }
+        bookStore.updateCustomerInfo(currentUsername, address, phone);
     }
     
     public Map<String, String> getCustomerInfo() {
@@ -65,25 +69,109 @@ public class BookStoreFacade {
     // ============== BOOK BROWSING ==============
     
     public List<Map<String, Object>> browseAllBooks() {
-        return convertBooksToDTO(bookStore.getAllBooks());
+        return cachedBooks("all", () -> bookStore.getAllBooks());
     }
     
     public List<Map<String, Object>> searchBooks(String query) {
-        return convertBooksToDTO(bookStore.searchBooks(query));
+        return cachedBooks("search\u0000" + BookSearchIndex.normalize(query), () -> bookStore.searchBooks(query));
+    }
+    
+    // Autocomplete for the search box: maps with "text" and "type" (title, author or category)
+    public List<Map<String, String>> suggest(String prefix, int limit) {
+        return bookStore.suggest(prefix, limit);
+    }
+    
+    // Typo-tolerant search, closest matches first (not cached: results depend on the time budget)
+    public List<Map<String, Object>> fuzzySearchBooks(String query) {
+        return convertBooksToDTO(bookStore.fuzzySearchBooks(query).getBooks());
+    }
+    
+    // Fuzzy match on the query text, keeping the query's other filters; sort and page are ignored
+    public List<Map<String, Object>> fuzzySearchBooks(BookQuery query) {
+        List<Book> matches = new ArrayList<>();
+        for (Book book : bookStore.fuzzySearchBooks(query.getText()).getBooks()) {
+            if (query.matchesFilters(book)) {
+                matches.add(book);
+            }
+        }
+        return convertBooksToDTO(matches);
     }
     
     public List<Map<String, Object>> filterBooksByCategory(String category) {
-        return convertBooksToDTO(bookStore.filterByCategory(category));
+        return cachedBooks("category\u0000" + CategoryIndex.normalize(category),
+                           () -> bookStore.filterByCategory(category));
     }
     
     public List<Map<String, Object>> sortBooksByPrice(boolean ascending) {
-        return convertBooksToDTO(bookStore.sortByPrice(ascending));
+        return cachedBooks("price\u0000" + ascending, () -> bookStore.sortByPrice(ascending));
+    }
+    
+    // Books with an effective (discounted) price in [minPrice, maxPrice], cheapest first; null = open
+    public List<Map<String, Object>> getBooksInPriceRange(Double minPrice, Double maxPrice) {
+        return cachedBooks("priceRange\u0000" + minPrice + "\u0000" + maxPrice,
+                           () -> bookStore.getBooksInPriceRange(minPrice, maxPrice));
     }
     
     public List<Map<String, Object>> sortBooksByPopularity() {
-        return convertBooksToDTO(bookStore.sortByPopularity());
+        return cachedBooks("popularity", () -> bookStore.sortByPopularity());
+    }
+
+    // Combined search/filter/sort/page; returns "books" (the page), "totalMatches", "offset", "hasMore",
+    // and with includeFacets "facets" ("categories" and "priceBands" count maps, "featured",
+    // "discounted", "inStock")
+    public Map<String, Object> queryBooks(BookQuery query) {
+        long version = bookStore.getCatalogVersion();
+        Map<String, Object> cached = queryCache.get("query\u0000" + query.cacheKey(), version, () -> {
+            BookQueryResult result = bookStore.queryBooks(query);
+            Map<String, Object> page = new HashMap<>();
+            page.put("books", freezeDTOs(convertBooksToDTO(result.getBooks())));
+            page.put("totalMatches", result.getTotalMatches());
+            page.put("offset", result.getOffset());
+            page.put("hasMore", result.hasMore());
+            if (result.getFacets() != null) {
+                page.put("facets", convertFacetsToDTO(result.getFacets()));
+            }
+            return Collections.unmodifiableMap(page);
+        });
+        @SuppressWarnings("unchecked")
+        List<Map<String, Object>> books = (List<Map<String, Object>>) cached.get("books");
+        Map<String, Object> page = new HashMap<>(cached);
+        page.put("books", new ArrayList<>(books));
+        return page;
+    }
+    
+    private Map<String, Object> convertFacetsToDTO(BookFacets facets) {
+        Map<String, Object> dto = new HashMap<>();
+        dto.put("categories", facets.getCategoryCounts());
+        dto.put("priceBands", Collections.unmodifiableMap(facets.getPriceBandCounts()));
+        dto.put("featured", facets.getFeaturedCount());
+        dto.put("discounted", facets.getDiscountedCount());
+        dto.put("inStock", facets.getInStockCount());
+        return Collections.unmodifiableMap(dto);
+    }
+    
+    // Hit rate and sizes of the shared catalog query cache
+    public Map<String, Object> getQueryCacheStatistics() {
+        return queryCache.getStatistics();
     }
     
+    // Reuses the converted listing while the catalog version is unchanged
+    private List<Map<String, Object>> cachedBooks(String key, Supplier<List<Book>> query) {
+        long version = bookStore.getCatalogVersion();
+        List<Map<String, Object>> books = queryCache.get(key, version,
+                () -> freezeDTOs(convertBooksToDTO(query.get())));
+        return new ArrayList<>(books);
+    }
+    
+    // Cached DTOs are shared between callers, so they are made read-only
+    private List<Map<String, Object>> freezeDTOs(List<Map<String, Object>> dtos) {
+        List<Map<String, Object>> frozen = new ArrayList<>(dtos.size());
+        for (Map<String, Object> dto : dtos) {
+            frozen.add(Collections.unmodifiableMap(dto));
+        }
+        return Collections.unmodifiableList(frozen);
+    }
+
     public Map<String, Object> getBookDetails(String bookId) {
         Book book = bookStore.getBookById(bookId);
         return book != null ? convertBookToDTO(book) : null;
@@ -112,6 +200,8 @@ public class BookStoreFacade {
         dto.put("isFeatured", book.isFeatured());
         dto.put("isDiscounted", book.isDiscounted());
         dto.put("discountPercentage", book.getDiscountPercentage());
+        dto.put("averageRating", bookStore.getAverageRating(book.getId()));
+        dto.put("reviewCount", bookStore.getReviewCount(book.getId()));
         return dto;
     }
     
@@ -173,48 +263,14 @@ public class BookStoreFacade {
     
     public String placeOrder() {
         Customer customer = bookStore.getCustomerByUsername(currentUsername);
-        if (customer == null || customer.getCart().isEmpty()) {
+        if (customer == null) {
             throw new IllegalStateException("Cart is empty");
         }
-        
-        Order order = new Order(bookStore.generateOrderId(), customer);
-        
-        for (OrderItem item : customer.getCart().getItems()) {
-            order.addItem(new OrderItem(item.getBook(), item.getQuantity()));
-            
-            // Get the actual book from the bookstore, not the temporary one from OrderItem
-            Book actualBook = bookStore.getBookById(item.getBook().getId());
-            if (actualBook != null) {
-                actualBook.setStock(actualBook.getStock() - item.getQuantity());
-                // Increment popularity by the quantity ordered
-                actualBook.setPopularity(actualBook.getPopularity() + item.getQuantity());
-            }
-        }
-        
-        bookStore.addOrder(order);
-        customer.addOrder(order);
-        customer.getCart().clear();
-        bookStore.saveAllData();
-        
-        return order.getOrderId();
+        return bookStore.placeOrder(customer).getOrderId();
     }
     
     public void cancelOrder(String orderId) {
-        Order order = bookStore.getOrderById(orderId);
-        if (order != null && order.getStatus().equals("PENDING")) {
-            order.setStatus("CANCELLED");
-            
-            for (OrderItem item : order.getItems()) {
-                // Get the actual book from the bookstore, not the temporary one from OrderItem
-                Book actualBook = bookStore.getBookById(item.getBook().getId());
-                if (actualBook != null) {
-                    actualBook.setStock(actualBook.getStock() + item.getQuantity());
-                    // Decrement popularity since this sale was cancelled
-                    actualBook.setPopularity(Math.max(0, actualBook.getPopularity() - item.getQuantity()));
-                }
-            }
-            bookStore.saveAllData();
-        }
+        bookStore.cancelPendingOrder(orderId);
     }
     
     public List<Map<String, Object>> getCustomerOrderHistory() {
@@ -222,15 +278,10 @@ public class BookStoreFacade {
         if (customer == null) return new ArrayList<>();
         
         // Get fresh order data from the system to ensure we have the latest status
-        List<Order> allOrders = bookStore.getAllOrders();
         List<Map<String, Object>> customerOrders = new ArrayList<>();
-        
-        for (Order order : allOrders) {
-            if (order.getCustomer().getUsername().equals(currentUsername)) {
-                customerOrders.add(convertOrderToDTO(order));
-            }
+        for (Order order : bookStore.getOrdersForCustomer(currentUsername)) {
+            customerOrders.add(convertOrderToDTO(order));
         }
-        
         return customerOrders;
     }
     
@@ -242,7 +293,7 @@ public class BookStoreFacade {
     private Map<String, Object> convertOrderToDTO(Order order) {
         Map<String, Object> dto = new HashMap<>();
         dto.put("orderId", order.getOrderId());
-        dto.put("customerUsername", order.getCustomer().getUsername());
+        dto.put("customerUsername", order.getCustomerUsername());
         dto.put("orderDate", order.getOrderDate().toString());
         dto.put("status", order.getStatus());
         dto.put("totalAmount", order.getTotalAmount());
@@ -267,9 +318,7 @@ public class BookStoreFacade {
         Customer customer = bookStore.getCustomerByUsername(currentUsername);
         if (customer != null) {
             Review review = new Review(bookId, currentUsername, rating, comment);
-            customer.addReview(review);
             bookStore.addReview(review);
-            bookStore.saveAllData();
         }
     }
     
@@ -290,6 +339,21 @@ public class BookStoreFacade {
         return reviewsDTO;
     }
     
+    // Average rating, review count and reviews per star (5 down to 1) for one book
+    public Map<String, Object> getBookRatingSummary(String bookId) {
+        int[] histogram = bookStore.getRatingDistribution(bookId);
+        Map<Integer, Integer> distribution = new LinkedHashMap<>();
+        for (int rating = histogram.length; rating >= 1; rating--) {
+            distribution.put(rating, histogram[rating - 1]);
+        }
+        
+        Map<String, Object> summary = new HashMap<>();
+        summary.put("averageRating", bookStore.getAverageRating(bookId));
+        summary.put("reviewCount", bookStore.getReviewCount(bookId));
+        summary.put("distribution", distribution);
+        return summary;
+    }
+    
     // ============== BOOK MANAGEMENT (Admin) ==============
     
     public void addBook(String id, String title, String author, double price, 
@@ -311,11 +375,11 @@ public class BookStoreFacade {
     }
     
     public void updateBookStock(String bookId, int newStock) {
-        Book book = bookStore.getBookById(bookId);
-        if (book != null) {
-            book.setStock(newStock);
-            bookStore.saveAllData();
-        }
+        bookStore.setBookStock(bookId, newStock);
+    }
+    
+    public List<Map<String, Object>> getLowStockBooks() {
+        return convertBooksToDTO(bookStore.getLowStockBooks());
     }
     
     // ============== CATEGORY MANAGEMENT (Admin) ==============
@@ -340,7 +404,11 @@ public class BookStoreFacade {
     }
     
     public List<Map<String, Object>> getPendingOrders() {
-        List<Order> orders = bookStore.getPendingOrders();
+        return getOrdersByStatus("PENDING");
+    }
+    
+    public List<Map<String, Object>> getOrdersByStatus(String status) {
+        List<Order> orders = bookStore.getOrdersByStatus(status);
         List<Map<String, Object>> ordersDTO = new ArrayList<>();
         for (Order order : orders) {
             ordersDTO.add(convertOrderToDTO(order));
@@ -351,35 +419,19 @@ public class BookStoreFacade {
     public void confirmOrder(String orderId) {
         Order order = bookStore.getOrderById(orderId);
         if (order != null) {
-            order.setStatus("CONFIRMED");
-            bookStore.saveAllData();
+            bookStore.updateOrderStatus(order, "CONFIRMED");
         }
     }
     
     public void shipOrder(String orderId) {
         Order order = bookStore.getOrderById(orderId);
         if (order != null && order.getStatus().equals("CONFIRMED")) {
-            order.setStatus("SHIPPED");
-            bookStore.saveAllData();
+            bookStore.updateOrderStatus(order, "SHIPPED");
         }
     }
     
     public void cancelOrderByAdmin(String orderId) {
-        Order order = bookStore.getOrderById(orderId);
-        if (order != null && order.getStatus().equals("PENDING")) {
-            order.setStatus("CANCELLED");
-            
-            for (OrderItem item : order.getItems()) {
-                // Get the actual book from the bookstore, not the temporary one from OrderItem
-                Book actualBook = bookStore.getBookById(item.getBook().getId());
-                if (actualBook != null) {
-                    actualBook.setStock(actualBook.getStock() + item.getQuantity());
-                    // Decrement popularity since this sale was cancelled
-                    actualBook.setPopularity(Math.max(0, actualBook.getPopularity() - item.getQuantity()));
-                }
-            }
-            bookStore.saveAllData();
-        }
+        bookStore.cancelPendingOrder(orderId);
     }
     
     // ============== STATISTICS (Admin) ==============
@@ -389,7 +441,12 @@ public class BookStoreFacade {
     }
     
     public List<Map<String, Object>> getTopSellingBooks(int limit) {
-        return convertBooksToDTO(bookStore.getTopSellingBooks(limit));
+        return cachedBooks("top\u0000" + limit, () -> bookStore.getTopSellingBooks(limit));
+    }
+    
+    public List<Map<String, Object>> getTopSellingBooks(String category, int limit) {
+        return cachedBooks("top\u0000" + CategoryIndex.normalize(category) + "\u0000" + limit,
+                           () -> bookStore.getTopSellingBooks(category, limit));
     }
     
     public double getTotalRevenue() {
@@ -397,25 +454,21 @@ public class BookStoreFacade {
     }
     
     public int getTotalOrdersCount() {
-        return bookStore.getAllOrders().size();
+        return bookStore.getOrderCount();
     }
     
     public int getCompletedOrdersCount() {
-        return (int) bookStore.getAllOrders().stream()
-            .filter(order -> order.getStatus().equals("CONFIRMED") || 
-                           order.getStatus().equals("SHIPPED") ||
-                           order.getStatus().equals("DELIVERED"))
-            .count();
+        return bookStore.countOrdersByStatus("CONFIRMED") +
+               bookStore.countOrdersByStatus("SHIPPED") +
+               bookStore.countOrdersByStatus("DELIVERED");
     }
     
     public int getPendingOrdersCount() {
-        return bookStore.getPendingOrders().size();
+        return bookStore.countOrdersByStatus("PENDING");
     }
     
     public int getCancelledOrdersCount() {
-        return (int) bookStore.getAllOrders().stream()
-            .filter(order -> order.getStatus().equals("CANCELLED"))
-            .count();
+        return bookStore.countOrdersByStatus("CANCELLED");
     }
     
     public List<Map<String, String>> getAllCustomers() {
@@ -441,4 +494,13 @@ public class BookStoreFacade {
     public void saveAllData() {
         bookStore.saveAllData();
     }
+    
+    public void exportDataAsJson() {
+        bookStore.exportJson();
+    }
+    
+    // Write pending changes and wait for the background writer; call before exit
+    public void flushPendingChanges() {
+        bookStore.flushChanges();
+    }
 }
\ No newline at end of file
@@ -1,16 +1,55 @@
 // BookStoreSystem.java - SINGLETON PATTERN with JSON Persistence
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.YearMonth;
 import java.util.*;
+import java.util.concurrent.*;
 import java.util.stream.Collectors;
 
 public class BookStoreSystem {
     private static BookStoreSystem instance;
-    private List<Book> books;
+    // The catalog in insertion order, keyed by id: replacing an entry keeps its place, and
+    // lookup, replace and delete are constant time. Guarded by the lock
+    private LinkedHashMap<String, Book> books;
+    private volatile BookSearchIndex searchIndex; // title/author tokens, built on first use
+    private volatile CategoryIndex categoryIndex;
+    private volatile SortedBookIndex priceIndex;      // effective (decorated) price
+    private volatile BestsellerTracker bestsellers;     // popularity, overall and per category
+    private volatile SuggestionIndex suggestionIndex;   // title/author/category prefixes for autocomplete
+    private volatile BookFlagIndex flagIndex;           // featured/discounted/stock/category bitmaps
+    // Units sold per category over CONFIRMED/SHIPPED orders, kept up to date once first requested
+    private Map<String, Integer> categorySales;
+    // Bumped (under the lock) whenever anything shown in a book listing changes; see getCatalogVersion
+    private volatile long catalogVersion;
     private List<User> users;
+    private final Map<String, User> usersByUsername = new ConcurrentHashMap<>();
     private List<Order> allOrders;
+    private OrderIndex orderIndex; // by id, status and customer over the loaded orders
     private List<Review> allReviews;
+    private ReviewIndex reviewIndex; // by book, with rating aggregates
     private Set<String> categories;
     private int orderIdCounter;
     private DataManager dataManager;
+    private Map<String, Object> config;
+    // Journaled mode: mutations append a small record instead of rewriting every file
+    private boolean journalMode;
+    private boolean binarySnapshots;
+    private boolean compressSealedOrders;
+    private int journalCompactThreshold;
+    private int journalRecordCount;
+    private int fuzzyMaxDistance;
+    private long fuzzySearchBudgetMs;
+    // Data files changed since the last snapshot; only these are rewritten on flush
+    private EnumSet<DataManager.DataFile> dirtyFiles = EnumSet.noneOf(DataManager.DataFile.class);
+    // Write-behind: journal records waiting for the persistence thread
+    private List<JournalEntry> pendingJournal = new ArrayList<>();
+    private boolean snapshotRequested;
+    private PersistenceService persistence;
+    // Orders are persisted per month; sealed months stay on disk until history or statistics need them
+    // Keyed by order id within each month, so a replayed or re-added order replaces its entry in place
+    private Map<YearMonth, LinkedHashMap<String, Order>> ordersByMonth = new HashMap<>();
+    private Set<YearMonth> dirtyOrderMonths = new HashSet<>();
+    private Set<YearMonth> unloadedSealedMonths = new HashSet<>();
 
     private BookStoreSystem() {
         dataManager = new DataManager();
@@ -27,18 +66,75 @@ public class BookStoreSystem {
     private void loadAllData() {
         System.out.println("\n========== Loading Data ==========");
         
-        users = dataManager.loadUsers();
-        books = dataManager.loadBooks();
-        allOrders = dataManager.loadOrders();
-        allReviews = dataManager.loadReviews();
-        categories = dataManager.loadCategories();
+        // The data files are independent, so decode them concurrently and join before continuing
+        int threads = Math.min(DataManager.DataFile.values().length, Runtime.getRuntime().availableProcessors());
+        ExecutorService loader = Executors.newFixedThreadPool(Math.max(1, threads));
+        Map<DataManager.DataFile, Long> loadMillis = new ConcurrentHashMap<>();
+        try {
+            Future<List<User>> usersFuture = loadAsync(loader, DataManager.DataFile.USERS, loadMillis, dataManager::loadUsers);
+            Future<List<Book>> booksFuture = loadAsync(loader, DataManager.DataFile.BOOKS, loadMillis, dataManager::loadBooks);
+            Future<List<Order>> ordersFuture = loadAsync(loader, DataManager.DataFile.ORDERS, loadMillis, dataManager::loadOrders);
+            Future<List<Review>> reviewsFuture = loadAsync(loader, DataManager.DataFile.REVIEWS, loadMillis, dataManager::loadReviews);
+            Future<Set<String>> categoriesFuture = loadAsync(loader, DataManager.DataFile.CATEGORIES, loadMillis, dataManager::loadCategories);
+            Future<Map<String, Object>> configFuture = loadAsync(loader, DataManager.DataFile.CONFIG, loadMillis, dataManager::loadConfig);
+            
+            users = join(usersFuture);
+            indexUsers();
+            books = toCatalog(join(booksFuture));
+            allOrders = join(ordersFuture);
+            allReviews = join(reviewsFuture);
+            categories = join(categoriesFuture);
+            config = join(configFuture);
+        } finally {
+            loader.shutdown();
+        }
+        for (DataManager.DataFile file : DataManager.DataFile.values()) {
+            System.out.println("⏱ " + dataManager.getLocation(file) + " loaded in " + loadMillis.get(file) + " ms");
+        }
         
-        Map<String, Object> config = dataManager.loadConfig();
         if (config.containsKey("orderIdCounter")) {
-            orderIdCounter = ((Double) config.get("orderIdCounter")).intValue();
+            orderIdCounter = ((Number) config.get("orderIdCounter")).intValue();
         } else {
             orderIdCounter = 1000;
         }
+        journalMode = !Boolean.FALSE.equals(config.get("journalMode"));
+        binarySnapshots = Boolean.TRUE.equals(config.get("binarySnapshots"));
+        dataManager.setBinarySnapshots(binarySnapshots);
+        compressSealedOrders = !Boolean.FALSE.equals(config.get("compressSealedOrders"));
+        dataManager.setCompressSealedOrders(compressSealedOrders);
+        journalCompactThreshold = config.containsKey("journalCompactThreshold")
+                ? ((Number) config.get("journalCompactThreshold")).intValue()
+                : 500;
+        long writeBehindDelayMs = config.containsKey("writeBehindDelayMs")
+                ? ((Number) config.get("writeBehindDelayMs")).longValue()
+                : 500;
+        persistence = new PersistenceService(this::writePendingChanges, writeBehindDelayMs);
+        fuzzyMaxDistance = config.containsKey("fuzzyMaxDistance")
+                ? ((Number) config.get("fuzzyMaxDistance")).intValue()
+                : 2;
+        fuzzySearchBudgetMs = config.containsKey("fuzzySearchBudgetMs")
+                ? ((Number) config.get("fuzzySearchBudgetMs")).longValue()
+                : 50;
+        
+        for (Order order : allOrders) {
+            addToMonth(order);
+        }
+        if (dataManager.hasOrderSegments()) {
+            unloadedSealedMonths = dataManager.getSealedOrderMonths();
+        } else if (!allOrders.isEmpty()) {
+            System.out.println("ℹ Migrating orders to monthly segments");
+            for (Order order : allOrders) {
+                markOrderDirty(order);
+            }
+        }
+        
+        // orders.json and reviews.json are the canonical copies of customer history
+        rebuildCustomerHistory();
+        orderIndex = new OrderIndex(allOrders);
+        reviewIndex = new ReviewIndex(allReviews);
+        
+        // Changes made since the last snapshot live in the journal
+        replayJournal();
         
         // If first run, initialize with default data
         if (users.isEmpty()) {
@@ -49,14 +145,37 @@ public class BookStoreSystem {
         System.out.println("==================================\n");
     }
 
+    private <T> Future<T> loadAsync(ExecutorService loader, DataManager.DataFile file,
+                                    Map<DataManager.DataFile, Long> loadMillis, Callable<T> task) {
+        return loader.submit(() -> {
+            long start = System.nanoTime();
+            try {
+                return task.call();
+            } finally {
+                loadMillis.put(file, (System.nanoTime() - start) / 1_000_000);
+            }
+        });
+    }
+    
+    private <T> T join(Future<T> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while loading data", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Error loading data: " + e.getCause().getMessage(), e.getCause());
+        }
+    }
+
     private void initializeDefaultData() {
-        users.add(UserFactory.createAdmin("admin", "admin123"));
+        addUser(UserFactory.createAdmin("admin", "admin123"));
         
-        categories.add("IT");
-        categories.add("History");
-        categories.add("Classics");
-        categories.add("Science");
-        categories.add("Fiction");
+        registerCategory("IT");
+        registerCategory("History");
+        registerCategory("Classics");
+        registerCategory("Science");
+        registerCategory("Fiction");
         
         Book book1 = new BasicBook("B001", "Clean Code", "Robert Martin", 45.99, 
                 "IT", 20, "1st Edition", "clean_code.jpg");
@@ -68,113 +187,900 @@ public class BookStoreSystem {
                 "Classics", 30, "3rd Edition", "1984.jpg");
 Book book5 = new BasicBook("B005", "The Selfish Gene", "Richard Dawkins", 35.00,
 "Science", 18, "1st Edition", "selfish_gene.jpg");
-    books.add(new FeaturedBook(new DiscountedBook(book1, 0.15)));
-    books.add(new DiscountedBook(book2, 0.10));
-    books.add(new FeaturedBook(book3));
-    books.add(book4);
-    books.add(new DiscountedBook(book5, 0.20));
+    insertBook(new FeaturedBook(new DiscountedBook(book1, 0.15)));
+    insertBook(new DiscountedBook(book2, 0.10));
+    insertBook(new FeaturedBook(book3));
+    insertBook(book4);
+    insertBook(new DiscountedBook(book5, 0.20));
     
     saveAllData();
 }
 
+// Customer history is not stored in users.json; rebuild it from the canonical orders and reviews
+private void rebuildCustomerHistory() {
+    Set<String> knownOrderIds = new HashSet<>();
+    for (Order order : allOrders) {
+        knownOrderIds.add(order.getOrderId());
+    }
+
+    // Migrate copies embedded by older versions that are missing from the canonical stores
+    boolean legacyUsersFile = false;
+    int migratedOrders = 0;
+    int migratedReviews = 0;
+    for (User user : users) {
+        if (!(user instanceof Customer)) {
+            continue;
+        }
+        Customer customer = (Customer) user;
+        if (!customer.getOrderHistory().isEmpty() || !customer.getReviews().isEmpty()) {
+            legacyUsersFile = true;
+        }
+        for (Order order : customer.getOrderHistory()) {
+            if (knownOrderIds.add(order.getOrderId())) {
+                allOrders.add(order);
+                addToMonth(order);
+                markOrderDirty(order);
+                migratedOrders++;
+            }
+        }
+        for (Review review : customer.getReviews()) {
+            if (allReviews.stream().noneMatch(existing -> isSameReview(existing, review))) {
+                allReviews.add(review);
+                migratedReviews++;
+            }
+        }
+        customer.getOrderHistory().clear();
+        customer.getReviews().clear();
+    }
+    if (legacyUsersFile) {
+        System.out.println("ℹ Migrating users.json to normalized format (" + migratedOrders +
+                           " orders, " + migratedReviews + " reviews recovered)");
+        markDirty(DataManager.DataFile.USERS);
+        if (migratedReviews > 0) {
+            markDirty(DataManager.DataFile.REVIEWS);
+        }
+    }
+
+    for (Order order : allOrders) {
+        Customer customer = getCustomerByUsername(order.getCustomerUsername());
+        if (customer != null) {
+            customer.addOrder(order);
+        }
+    }
+    for (Review review : allReviews) {
+        Customer customer = getCustomerByUsername(review.getCustomerUsername());
+        if (customer != null) {
+            customer.addReview(review);
+        }
+    }
+}
+
+private boolean isSameReview(Review a, Review b) {
+    return a.getBookId().equals(b.getBookId()) &&
+           a.getCustomerUsername().equals(b.getCustomerUsername()) &&
+           a.getReviewDate().equals(b.getReviewDate());
+}
+
+// Full save: mark every data file and open order month dirty, write them and wait.
+// Sealed months never change, so their segments are left as they are
 public void saveAllData() {
-    System.out.println("\n========== Saving Data ==========");
-    dataManager.saveUsers(users);
-    dataManager.saveBooks(books);
-    dataManager.saveOrders(allOrders);
-    dataManager.saveReviews(allReviews);
-    dataManager.saveCategories(categories);
-    
-    Map<String, Object> config = new HashMap<>();
-    config.put("orderIdCounter", orderIdCounter);
-    dataManager.saveConfig(config);
-    System.out.println("==================================\n");
+    synchronized (this) {
+        dirtyFiles = EnumSet.allOf(DataManager.DataFile.class);
+        Set<YearMonth> sealedMonths = dataManager.getSealedOrderMonths();
+        for (YearMonth month : ordersByMonth.keySet()) {
+            if (!sealedMonths.contains(month)) {
+                dirtyOrderMonths.add(month);
+            }
+        }
+        snapshotRequested = true;
+    }
+    persistence.flushAndWait();
+}
+
+// Write books.json and an orders export even when binary snapshots are the primary format
+public synchronized void exportJson() {
+    loadArchivedOrders();
+    dataManager.exportJson(catalog(), allOrders);
+}
+
+private void addToMonth(Order order) {
+    ordersByMonth.computeIfAbsent(OrderSegmentStore.monthOf(order), k -> new LinkedHashMap<>())
+            .put(order.getOrderId(), order);
+}
+
+private void markOrderDirty(Order order) {
+    markDirty(DataManager.DataFile.ORDERS);
+    dirtyOrderMonths.add(OrderSegmentStore.monthOf(order));
+}
+
+// Bring the sealed archive segments into memory the first time history or statistics need them
+private synchronized void loadArchivedOrders() {
+    if (unloadedSealedMonths.isEmpty()) {
+        return;
+    }
+    Set<String> knownOrderIds = new HashSet<>();
+    for (Order order : allOrders) {
+        knownOrderIds.add(order.getOrderId());
+    }
+    List<Order> archived = new ArrayList<>();
+    for (Order order : dataManager.loadArchivedOrders()) {
+        if (knownOrderIds.add(order.getOrderId())) {
+            archived.add(order);
+        }
+    }
+    // Archived months are older than anything active, so keep allOrders in date order
+    allOrders.addAll(0, archived);
+    orderIndex.addArchived(archived);
+    for (Order order : archived) {
+        addToMonth(order);
+        Customer customer = getCustomerByUsername(order.getCustomerUsername());
+        if (customer != null) {
+            customer.addOrder(order);
+        }
+    }
+    unloadedSealedMonths.clear();
+}
+
+// Write the changed data files now (compacting the journal) and wait; used on shutdown
+public void flushChanges() {
+    synchronized (this) {
+        snapshotRequested = true;
+    }
+    persistence.flushAndWait();
+}
+
+// Runs on the persistence thread: encode under the lock, do the disk I/O outside it
+private void writePendingChanges() {
+    List<JournalEntry> journalBatch;
+    Map<DataManager.DataFile, byte[]> snapshot = null;
+    Map<Path, byte[]> orderSegments = null;
+    EnumSet<DataManager.DataFile> snapshotFiles = null;
+    Set<YearMonth> snapshotMonths = null;
+    int snapshotRecords = 0;
+    synchronized (this) {
+        journalBatch = pendingJournal;
+        pendingJournal = new ArrayList<>();
+        boolean writeSnapshot = snapshotRequested || !journalMode ||
+                                journalRecordCount >= journalCompactThreshold;
+        if (writeSnapshot && (!dirtyFiles.isEmpty() || journalRecordCount > 0)) {
+            snapshotFiles = EnumSet.copyOf(dirtyFiles);
+            snapshotMonths = new HashSet<>(dirtyOrderMonths);
+            snapshotRecords = journalRecordCount;
+            snapshot = encodeDirtyFiles();
+            orderSegments = encodeDirtyOrderSegments();
+            dirtyFiles.clear();
+            journalRecordCount = 0;
+        }
+        snapshotRequested = false;
+    }
+
+    if (snapshot != null) {
+        System.out.println("\n========== Saving Data ==========");
+        try {
+            dataManager.writeFiles(snapshot, orderSegments);
+            // The snapshot is durable and contains everything the journal recorded
+            dataManager.clearJournal();
+            journalBatch = Collections.emptyList();
+        } catch (IOException | RuntimeException e) {
+            // The journal is still the only durable copy: keep it, and retry the files next time
+            synchronized (this) {
+                dirtyFiles.addAll(snapshotFiles);
+                dirtyOrderMonths.addAll(snapshotMonths);
+                journalRecordCount += snapshotRecords;
+            }
+        }
+        System.out.println("==================================\n");
+    }
+    if (!journalBatch.isEmpty()) {
+        try {
+            dataManager.appendJournal(journalBatch);
+        } catch (IOException | RuntimeException e) {
+            // Keep the records queued, ahead of anything recorded since
+            synchronized (this) {
+                journalBatch.addAll(pendingJournal);
+                pendingJournal = journalBatch;
+            }
+        }
+    }
+}
+
+private Map<DataManager.DataFile, byte[]> encodeDirtyFiles() {
+    Map<DataManager.DataFile, byte[]> snapshot = new EnumMap<>(DataManager.DataFile.class);
+    if (dirtyFiles.contains(DataManager.DataFile.USERS)) {
+        snapshot.put(DataManager.DataFile.USERS, dataManager.encodeUsers(users));
+    }
+    if (dirtyFiles.contains(DataManager.DataFile.BOOKS)) {
+        snapshot.put(DataManager.DataFile.BOOKS, dataManager.encodeBooks(catalog()));
+    }
+    if (dirtyFiles.contains(DataManager.DataFile.REVIEWS)) {
+        snapshot.put(DataManager.DataFile.REVIEWS, dataManager.encodeReviews(allReviews));
+    }
+    if (dirtyFiles.contains(DataManager.DataFile.CATEGORIES)) {
+        snapshot.put(DataManager.DataFile.CATEGORIES, dataManager.encodeCategories(categories));
+    }
+    if (dirtyFiles.contains(DataManager.DataFile.CONFIG)) {
+        config.put("orderIdCounter", orderIdCounter);
+        config.put("journalMode", journalMode);
+        config.put("journalCompactThreshold", journalCompactThreshold);
+        config.put("writeBehindDelayMs", persistence.getDelayMillis());
+        config.put("binarySnapshots", binarySnapshots);
+        config.put("compressSealedOrders", compressSealedOrders);
+        config.put("fuzzyMaxDistance", fuzzyMaxDistance);
+        config.put("fuzzySearchBudgetMs", fuzzySearchBudgetMs);
+        snapshot.put(DataManager.DataFile.CONFIG, dataManager.encodeConfig(config));
+    }
+    return snapshot;
+}
+
+// Only the months whose orders changed are rewritten
+private Map<Path, byte[]> encodeDirtyOrderSegments() {
+    Map<YearMonth, List<Order>> segments = new HashMap<>();
+    for (YearMonth month : dirtyOrderMonths) {
+        if (unloadedSealedMonths.contains(month)) {
+            // Never rewrite a sealed month from a partial in-memory view
+            loadArchivedOrders();
+        }
+        LinkedHashMap<String, Order> segment = ordersByMonth.get(month);
+        segments.put(month, segment == null ? new ArrayList<>() : new ArrayList<>(segment.values()));
+    }
+    dirtyOrderMonths.clear();
+    return dataManager.encodeOrderSegments(segments);
+}
+
+private void markDirty(DataManager.DataFile... files) {
+    dirtyFiles.addAll(Arrays.asList(files));
+}
+
+// Queue the journal records of one mutation and let the persistence thread write them
+private void recordChanges(JournalEntry... entries) {
+    recordChanges(Arrays.asList(entries));
+}
+
+private synchronized void recordChanges(List<JournalEntry> entries) {
+    if (journalMode) {
+        pendingJournal.addAll(entries);
+        journalRecordCount += entries.size();
+    }
+    persistence.requestFlush();
+}
+
+private void replayJournal() {
+    List<JournalEntry> entries = dataManager.loadJournal();
+    for (JournalEntry entry : entries) {
+        switch (entry.getOp()) {
+            case JournalEntry.BOOK_PUT:
+                applyBookPut(dataManager.decodeBook(entry));
+                break;
+            case JournalEntry.BOOK_REMOVE:
+                deleteBook(entry.getData().getAsString());
+                markDirty(DataManager.DataFile.BOOKS);
+                break;
+            case JournalEntry.USER_PUT:
+                applyUserPut(dataManager.decodeUser(entry));
+                break;
+            case JournalEntry.ORDER_PUT:
+                applyOrderPut(dataManager.decodeOrder(entry));
+                break;
+            case JournalEntry.REVIEW_ADD:
+                applyReviewAdd(dataManager.decodeReview(entry));
+                break;
+            case JournalEntry.CATEGORY_ADD:
+                registerCategory(entry.getData().getAsString());
+                markDirty(DataManager.DataFile.CATEGORIES);
+                break;
+            case JournalEntry.ORDER_COUNTER:
+                orderIdCounter = Math.max(orderIdCounter, entry.getData().getAsInt());
+                markDirty(DataManager.DataFile.CONFIG);
+                break;
+            default:
+                System.err.println("⚠ Unknown journal record: " + entry.getOp());
+        }
+    }
+    journalRecordCount = entries.size();
+    if (!entries.isEmpty()) {
+        System.out.println("✓ Replayed " + entries.size() + " journal records");
+    }
+}
+
+private void applyBookPut(Book book) {
+    if (registerCategory(book.getCategory())) {
+        markDirty(DataManager.DataFile.CATEGORIES);
+    }
+    markDirty(DataManager.DataFile.BOOKS);
+    if (!replaceBook(book)) {
+        insertBook(book);
+    }
+}
+
+private void applyUserPut(User user) {
+    markDirty(DataManager.DataFile.USERS);
+    User existing = usersByUsername.get(user.getUsername());
+    if (existing == null) {
+        addUser(user);
+    } else if (existing instanceof Customer && user instanceof Customer) {
+        // Keep the history already rebuilt from the snapshot and earlier records
+        ((Customer) existing).setAddress(((Customer) user).getAddress());
+        ((Customer) existing).setPhone(((Customer) user).getPhone());
+    } else {
+        users.set(users.indexOf(existing), user);
+        usersByUsername.put(user.getUsername(), user);
+    }
+}
+
+// An order already loaded only ever changes status, so its instance (shared with the month,
+// the index and the customer's history) is updated in place instead of replaced
+private void applyOrderPut(Order order) {
+    Order existing = getOrderById(order.getOrderId());
+    if (existing == null) {
+        allOrders.add(order);
+        orderIndex.add(order);
+        addToMonth(order);
+        if (categorySales != null && countsAsSale(order.getStatus())) {
+            addCategorySales(order, 1);
+        }
+        Customer customer = getCustomerByUsername(order.getCustomerUsername());
+        if (customer != null) {
+            customer.addOrder(order);
+        }
+        markOrderDirty(order);
+        return;
+    }
+    if (!existing.getStatus().equals(order.getStatus())) {
+        if (categorySales != null && countsAsSale(existing.getStatus()) != countsAsSale(order.getStatus())) {
+            addCategorySales(existing, countsAsSale(order.getStatus()) ? 1 : -1);
+        }
+        existing.setStatus(order.getStatus());
+        orderIndex.statusChanged(existing);
+    }
+    markOrderDirty(existing);
+}
+
+private void applyReviewAdd(Review review) {
+    // A crash between snapshot and journal truncation can replay a review twice
+    boolean alreadyPresent = reviewIndex.reviewsFor(review.getBookId()).stream()
+            .anyMatch(existing -> isSameReview(existing, review));
+    if (alreadyPresent) {
+        return;
+    }
+    allReviews.add(review);
+    reviewIndex.add(review);
+    catalogVersion++;
+    markDirty(DataManager.DataFile.REVIEWS);
+    Customer customer = getCustomerByUsername(review.getCustomerUsername());
+    if (customer != null &&
+        customer.getReviews().stream().noneMatch(existing -> isSameReview(existing, review))) {
+        customer.addReview(review);
+    }
 }
 
 // Book Management
-public void addBook(Book book) {
-    books.add(book);
-    categories.add(book.getCategory());
-    saveAllData();
+// Adding an id that already exists replaces that entry, as journal replay does
+public synchronized void addBook(Book book) {
+    if (!replaceBook(book)) {
+        insertBook(book);
+    }
+    if (registerCategory(book.getCategory())) {
+        markDirty(DataManager.DataFile.CATEGORIES);
+    }
+    markDirty(DataManager.DataFile.BOOKS);
+    recordChanges(dataManager.bookRecord(book));
 }
 
-public void removeBook(String bookId) {
-    books.removeIf(book -> book.getId().equals(bookId));
-    saveAllData();
+public synchronized void removeBook(String bookId) {
+    deleteBook(bookId);
+    markDirty(DataManager.DataFile.BOOKS);
+    recordChanges(dataManager.bookRemovedRecord(bookId));
 }
 
-public void updateBook(Book updatedBook) {
-    for (int i = 0; i < books.size(); i++) {
-        if (books.get(i).getId().equals(updatedBook.getId())) {
-            books.set(i, updatedBook);
-            categories.add(updatedBook.getCategory());
-            saveAllData();
-            break;
+public synchronized void updateBook(Book updatedBook) {
+    if (replaceBook(updatedBook)) {
+        if (registerCategory(updatedBook.getCategory())) {
+            markDirty(DataManager.DataFile.CATEGORIES);
         }
+        markDirty(DataManager.DataFile.BOOKS);
+        recordChanges(dataManager.bookRecord(updatedBook));
     }
 }
 
-public Book getBookById(String id) {
-    return books.stream()
-            .filter(book -> book.getId().equals(id))
-            .findFirst()
-            .orElse(null);
+// Restocking: the stock change, its index updates and its journal record happen under one lock
+public synchronized boolean setBookStock(String bookId, int stock) {
+    Book book = getBookById(bookId);
+    if (book == null) {
+        return false;
+    }
+    book.setStock(stock);
+    reindexBooks(Collections.singletonList(book));
+    markDirty(DataManager.DataFile.BOOKS);
+    recordChanges(dataManager.bookRecord(book));
+    return true;
 }
 
-public List<Book> getAllBooks() {
-    return new ArrayList<>(books);
+public synchronized Book getBookById(String id) {
+    return id == null ? null : books.get(id);
 }
 
+private synchronized CategoryIndex buildCategoryIndex() {
+    if (categoryIndex == null) {
+        categoryIndex = new CategoryIndex(catalog(), categories);
+    }
+    return categoryIndex;
+}
+
+private synchronized SortedBookIndex buildPriceIndex() {
+    if (priceIndex == null) {
+        priceIndex = new SortedBookIndex(catalog(), Book::getPrice);
+    }
+    return priceIndex;
+}
+
+private BestsellerTracker bestsellers() {
+    BestsellerTracker tracker = bestsellers;
+    return tracker != null ? tracker : buildBestsellers();
+}
+
+private synchronized BestsellerTracker buildBestsellers() {
+    if (bestsellers == null) {
+        bestsellers = new BestsellerTracker(catalog());
+    }
+    return bestsellers;
+}
+
+// Adds to the category list and, for categories without books yet, to the category index
+private boolean registerCategory(String category) {
+    boolean added = categories.add(category);
+    if (categoryIndex != null) {
+        categoryIndex.registerCategory(category);
+    }
+    if (suggestionIndex != null) {
+        suggestionIndex.addCategory(category);
+    }
+    return added;
+}
+
+private BookFlagIndex flagIndex() {
+    BookFlagIndex index = flagIndex;
+    return index != null ? index : buildFlagIndex();
+}
+
+private synchronized BookFlagIndex buildFlagIndex() {
+    if (flagIndex == null) {
+        flagIndex = new BookFlagIndex(catalog());
+    }
+    return flagIndex;
+}
+
+private synchronized SuggestionIndex buildSuggestionIndex() {
+    if (suggestionIndex == null) {
+        suggestionIndex = new SuggestionIndex(catalog(), categories);
+    }
+    return suggestionIndex;
+}
+
+private synchronized BookSearchIndex buildSearchIndex() {
+    if (searchIndex == null) {
+        long start = System.nanoTime();
+        searchIndex = new BookSearchIndex(catalog());
+        System.out.println("ℹ Search index built for " + searchIndex.size() + " books in " +
+                           (System.nanoTime() - start) / 1_000_000 + " ms");
+    }
+    return searchIndex;
+}
+
+// All catalog changes go through these three so the list and the indexes stay in step
+private void insertBook(Book book) {
+    books.put(book.getId(), book);
+    catalogVersion++;
+    if (searchIndex != null) {
+        searchIndex.add(book);
+    }
+    if (categoryIndex != null) {
+        categoryIndex.add(book);
+    }
+    if (priceIndex != null) {
+        priceIndex.add(book);
+    }
+    if (bestsellers != null) {
+        bestsellers.add(book);
+    }
+    if (suggestionIndex != null) {
+        suggestionIndex.add(book);
+    }
+    if (flagIndex != null) {
+        flagIndex.add(book);
+    }
+}
+
+// Swaps the entry with the same id (e.g. a book re-wrapped in another decorator); false if absent
+private boolean replaceBook(Book book) {
+    if (!books.containsKey(book.getId())) {
+        return false;
+    }
+    books.put(book.getId(), book); // an existing key keeps its place in the order
+    catalogVersion++;
+    if (searchIndex != null) {
+        searchIndex.update(book);
+    }
+    if (categoryIndex != null) {
+        categoryIndex.update(book);
+    }
+    if (suggestionIndex != null) {
+        suggestionIndex.update(book);
+    }
+    reindexBooks(Collections.singletonList(book));
+    return true;
+}
+
+private void deleteBook(String bookId) {
+    books.remove(bookId);
+    catalogVersion++;
+    if (searchIndex != null) {
+        searchIndex.remove(bookId);
+    }
+    if (categoryIndex != null) {
+        categoryIndex.remove(bookId);
+    }
+    if (priceIndex != null) {
+        priceIndex.remove(bookId);
+    }
+    if (bestsellers != null) {
+        bestsellers.remove(bookId);
+    }
+    if (suggestionIndex != null) {
+        suggestionIndex.remove(bookId);
+    }
+    if (flagIndex != null) {
+        flagIndex.remove(bookId);
+    }
+}
+
+// Price, popularity and stock are edited in place (orders, discounts, restocking); move the books
+// in the sorted indexes and re-read their flag bitmaps
+private void reindexBooks(Collection<Book> changedBooks) {
+    if (!changedBooks.isEmpty()) {
+        catalogVersion++;
+    }
+    for (Book book : changedBooks) {
+        if (flagIndex != null) {
+            flagIndex.update(book);
+        }
+        if (priceIndex != null) {
+            priceIndex.update(book);
+        }
+        if (bestsellers != null) {
+            bestsellers.update(book);
+        }
+    }
+}
+
+/**
+ * Changes whenever a book is added, replaced or removed, a book's stock, price or popularity
+ * changes through an order or setBookStock(), or a review is added. Results computed from the
+ * catalog at one version are still correct while the version is unchanged.
+ */
+public long getCatalogVersion() {
+    return catalogVersion;
+}
+
+public synchronized List<Book> getAllBooks() {
+    return catalog();
+}
+
+// Copy of the catalog in order, for encoding and for building indexes
+private List<Book> catalog() {
+    return new ArrayList<>(books.values());
+}
+
+// Duplicate ids keep the first entry, the one lookups have always returned
+private static LinkedHashMap<String, Book> toCatalog(List<Book> loaded) {
+    LinkedHashMap<String, Book> catalog = new LinkedHashMap<>(Math.max(16, loaded.size() * 4 / 3));
+    for (Book book : loaded) {
+        catalog.putIfAbsent(book.getId(), book);
+    }
+    return catalog;
+}
+
+// Case-insensitive substring match on title or author, answered from the inverted index
 public List<Book> searchBooks(String query) {
-    String lowerQuery = query.toLowerCase();
-    return books.stream()
-            .filter(book -> book.getTitle().toLowerCase().contains(lowerQuery) ||
-                           book.getAuthor().toLowerCase().contains(lowerQuery))
-            .collect(Collectors.toList());
+    BookSearchIndex index = searchIndex;
+    if (index == null) {
+        index = buildSearchIndex();
+    }
+    return index.search(query);
+}
+
+// Titles, authors and categories starting with (or with a word starting with) the prefix
+public List<Map<String, String>> suggest(String prefix, int limit) {
+    SuggestionIndex index = suggestionIndex;
+    if (index == null) {
+        index = buildSuggestionIndex();
+    }
+    return index.suggest(prefix, limit);
 }
 
+// Typo-tolerant search using the configured edit distance and time budget
+public FuzzySearchResult fuzzySearchBooks(String query) {
+    return fuzzySearchBooks(query, fuzzyMaxDistance, fuzzySearchBudgetMs);
+}
+
+// Closest matches first; see BookSearchIndex.fuzzySearch
+public FuzzySearchResult fuzzySearchBooks(String query, int maxDistance, long budgetMillis) {
+    BookSearchIndex index = searchIndex;
+    if (index == null) {
+        index = buildSearchIndex();
+    }
+    FuzzySearchResult result = index.fuzzySearch(query, maxDistance, budgetMillis * 1_000_000L);
+    if (!result.isComplete()) {
+        System.out.println("⚠ Fuzzy search for \"" + query + "\" ran past " + budgetMillis +
+                           " ms; returning the " + result.getBooks().size() + " matches found");
+    }
+    return result;
+}
+
+// Case-insensitive (and whitespace-trimmed) category match, in catalog order
 public List<Book> filterByCategory(String category) {
-    return books.stream()
-            .filter(book -> book.getCategory().equalsIgnoreCase(category))
-            .collect(Collectors.toList());
+    CategoryIndex index = categoryIndex;
+    if (index == null) {
+        index = buildCategoryIndex();
+    }
+    return index.booksIn(category);
+}
+
+// In-stock books with at most BookFlagIndex.LOW_STOCK_THRESHOLD copies left, in catalog order
+public List<Book> getLowStockBooks() {
+    return flagIndex().select(null, false, false, false, true);
+}
+
+// Books whose effective (discounted) price is within [minPrice, maxPrice], cheapest first;
+// null leaves a side open. Reads only the books in range from the price index.
+public List<Book> getBooksInPriceRange(Double minPrice, Double maxPrice) {
+    List<Book> inRange = new ArrayList<>();
+    sortedIndex(BookQuery.SortKey.PRICE_ASC).scan(minPrice, maxPrice, false, book -> {
+        inRange.add(book);
+        return true;
+    });
+    return inRange;
 }
 
 public List<Book> sortByPrice(boolean ascending) {
-    List<Book> sortedBooks = new ArrayList<>(books);
-    if (ascending) {
-        sortedBooks.sort(Comparator.comparingDouble(Book::getPrice));
+    return sortedIndex(BookQuery.SortKey.PRICE_ASC).list(!ascending);
+}
+
+public List<Book> sortByPopularity() {
+    return sortedIndex(BookQuery.SortKey.POPULARITY).list(true);
+}
+
+private SortedBookIndex sortedIndex(BookQuery.SortKey sortKey) {
+    if (sortKey == BookQuery.SortKey.POPULARITY) {
+        return bestsellers().getRanking();
+    }
+    SortedBookIndex index = priceIndex;
+    return index != null ? index : buildPriceIndex();
+}
+
+// Search, filter, sort and page in one request: start from the most selective index,
+// filter the candidates in a single pass and only order as many books as the page needs
+public BookQueryResult queryBooks(BookQuery query) {
+    if (query.isIncludeFacets()) {
+        return queryWithFacets(query);
+    }
+    if (query.getSortKey() != BookQuery.SortKey.DEFAULT && !query.hasText() && !query.hasCategory()) {
+        return queryInIndexOrder(query);
+    }
+    List<Book> matches = new ArrayList<>();
+    if (query.hasText()) {
+        for (Book book : searchBooks(query.getText())) {
+            if (query.matchesFilters(book)) {
+                matches.add(book);
+            }
+        }
+    } else if (query.getMinPrice() != null || query.getMaxPrice() != null) {
+        // Only the books in the price range are read
+        for (Book book : sortedIndex(BookQuery.SortKey.PRICE_ASC)
+                .rangeInCatalogOrder(query.getMinPrice(), query.getMaxPrice())) {
+            if (query.matchesFilters(book)) {
+                matches.add(book);
+            }
+        }
     } else {
-        sortedBooks.sort(Comparator.comparingDouble(Book::getPrice).reversed());
+        // Category and flags only: every criterion is a bitmap
+        return pageOfSelection(query, null);
     }
-    return sortedBooks;
+    return page(query, matches, null);
 }
 
-public List<Book> sortByPopularity() {
-    List<Book> sortedBooks = new ArrayList<>(books);
-    sortedBooks.sort(Comparator.comparingInt(Book::getPopularity).reversed());
-    return sortedBooks;
+// Facets count books outside the selected category too, so the candidates are the text
+// matches (or the price range); the same pass collects the matches and the facet counts
+private BookQueryResult queryWithFacets(BookQuery query) {
+    String selectedCategory = query.hasCategory() ? query.getCategory() : null;
+    boolean priceFilter = query.getMinPrice() != null || query.getMaxPrice() != null;
+    if (!query.hasText() && !priceFilter) {
+        // Every criterion is a bitmap, so the counts are bitmap cardinalities
+        BookFacets facets = flagIndex().facets(selectedCategory,
+                query.isFeaturedOnly(), query.isDiscountedOnly(), query.isInStockOnly());
+        return pageOfSelection(query, facets);
+    }
+    // Without text only the books in the price range are read; the price band counts, which
+    // ignore the price filter, then come from the band bitmaps
+    List<Book> candidates = query.hasText()
+            ? searchBooks(query.getText())
+            : sortedIndex(BookQuery.SortKey.PRICE_ASC).rangeInCatalogOrder(query.getMinPrice(), query.getMaxPrice());
+    BookFacets facets = new BookFacets();
+    List<Book> matches = new ArrayList<>();
+    for (Book book : candidates) {
+        boolean categoryOk = query.matchesCategory(book);
+        boolean priceOk = query.matchesPrice(book);
+        boolean featuredOk = query.matchesFeatured(book);
+        boolean discountedOk = query.matchesDiscounted(book);
+        boolean stockOk = query.matchesStock(book);
+        String category = book.getCategory() == null ? "" : book.getCategory().trim();
+        facets.count(book, category, categoryOk, priceOk, featuredOk, discountedOk, stockOk);
+        if (categoryOk && priceOk && featuredOk && discountedOk && stockOk) {
+            matches.add(book);
+        }
+    }
+    if (!query.hasText()) {
+        flagIndex().countBands(facets, selectedCategory,
+                query.isFeaturedOnly(), query.isDiscountedOnly(), query.isInStockOnly());
+    }
+    return page(query, matches, facets);
+}
+
+// The total is the bitmap cardinality and only the page is read: off the bitmap in catalog
+// order, or by walking the sorted index and keeping the books in the bitmap until the page is full
+private BookQueryResult pageOfSelection(BookQuery query, BookFacets facets) {
+    BookFlagIndex.Selection selection = flagIndex().selection(query.hasCategory() ? query.getCategory() : null,
+            query.isFeaturedOnly(), query.isDiscountedOnly(), query.isInStockOnly(), false);
+    BookQuery.SortKey sortKey = query.getSortKey();
+    int total = selection.size();
+    int offset = Math.min(query.getOffset(), total);
+    int end = (int) Math.min((long) query.getOffset() + query.getLimit(), total);
+    if (sortKey == BookQuery.SortKey.DEFAULT) {
+        return new BookQueryResult(selection.page(offset, end - offset), total, offset, facets);
+    }
+    List<Book> page = new ArrayList<>(end - offset);
+    if (end > offset) {
+        int[] position = {0};
+        sortedIndex(sortKey).scan(null, null, sortKey != BookQuery.SortKey.PRICE_ASC, book -> {
+            if (!selection.contains(book)) {
+                return true;
+            }
+            if (position[0]++ >= offset) {
+                page.add(book);
+            }
+            return position[0] < end;
+        });
+    }
+    return new BookQueryResult(page, total, offset, facets);
+}
+
+// Sorts (as far as needed) and cuts the requested page out of the matches
+private BookQueryResult page(BookQuery query, List<Book> matches, BookFacets facets) {
+    int total = matches.size();
+    int offset = Math.min(query.getOffset(), total);
+    int end = (int) Math.min((long) query.getOffset() + query.getLimit(), total);
+    Comparator<Book> order = sortOrder(query.getSortKey());
+    if (order != null && end > offset) {
+        matches = firstInOrder(matches, order, end);
+    }
+    return new BookQueryResult(new ArrayList<>(matches.subList(offset, end)), total, offset, facets);
+}
+
+// Sorted browse without text or category: read the sorted index in order instead of sorting.
+// A price range on a price sort becomes an index range; unfiltered pages stop after the page.
+private BookQueryResult queryInIndexOrder(BookQuery query) {
+    BookQuery.SortKey sortKey = query.getSortKey();
+    SortedBookIndex index = sortedIndex(sortKey);
+    boolean byPrice = sortKey != BookQuery.SortKey.POPULARITY;
+    boolean unfiltered = !query.isFeaturedOnly() && !query.isDiscountedOnly() && !query.isInStockOnly() &&
+                         query.getMinPrice() == null && query.getMaxPrice() == null;
+    long end = (long) query.getOffset() + query.getLimit();
+    List<Book> page = new ArrayList<>();
+    int[] matches = {0};
+    index.scan(byPrice ? query.getMinPrice() : null, byPrice ? query.getMaxPrice() : null,
+               sortKey != BookQuery.SortKey.PRICE_ASC, book -> {
+        if (!query.matchesFilters(book)) {
+            return true;
+        }
+        int position = matches[0]++;
+        if (position >= query.getOffset() && position < end) {
+            page.add(book);
+        }
+        return !unfiltered || matches[0] < end;
+    });
+    int total = unfiltered ? index.size() : matches[0];
+    return new BookQueryResult(page, total, Math.min(query.getOffset(), total));
+}
+
+private Comparator<Book> sortOrder(BookQuery.SortKey sortKey) {
+    switch (sortKey) {
+        case PRICE_ASC:
+            return Comparator.comparingDouble(Book::getPrice);
+        case PRICE_DESC:
+            return Comparator.comparingDouble(Book::getPrice).reversed();
+        case POPULARITY:
+            return Comparator.comparingInt(Book::getPopularity).reversed();
+        default:
+            return null; // catalog order
+    }
+}
+
+// The first count books of the stable sort by order; a bounded heap when the page is small
+private List<Book> firstInOrder(List<Book> books, Comparator<Book> order, int count) {
+    if (count * 4L >= books.size()) {
+        books.sort(order);
+        return books;
+    }
+    // Ties are broken by catalog position so the result matches a stable sort
+    Comparator<Integer> byPosition = (a, b) -> {
+        int c = order.compare(books.get(a), books.get(b));
+        return c != 0 ? c : Integer.compare(a, b);
+    };
+    PriorityQueue<Integer> worstFirst = new PriorityQueue<>(count + 1, byPosition.reversed());
+    for (int i = 0; i < books.size(); i++) {
+        worstFirst.add(i);
+        if (worstFirst.size() > count) {
+            worstFirst.poll();
+        }
+    }
+    List<Integer> positions = new ArrayList<>(worstFirst);
+    positions.sort(byPosition);
+    List<Book> first = new ArrayList<>(positions.size());
+    for (int position : positions) {
+        first.add(books.get(position));
+    }
+    return first;
 }
 
 // User Management
-public void registerUser(User user) {
+private void indexUsers() {
+    usersByUsername.clear();
+    for (User user : users) {
+        // Like the old linear scans, the first account wins if a username is duplicated
+        usersByUsername.putIfAbsent(user.getUsername(), user);
+    }
+}
+
+private void addUser(User user) {
     users.add(user);
-    saveAllData();
+    usersByUsername.putIfAbsent(user.getUsername(), user);
+}
+
+// Returns false (and changes nothing) if the username is already taken
+public synchronized boolean registerUser(User user) {
+    if (usersByUsername.containsKey(user.getUsername())) {
+        return false;
+    }
+    addUser(user);
+    markDirty(DataManager.DataFile.USERS);
+    recordChanges(dataManager.userRecord(user));
+    return true;
+}
+
+public boolean isUsernameTaken(String username) {
+    return username != null && usersByUsername.containsKey(username);
+}
+
+// Profile edits are applied under the lock so a snapshot never sees half of them
+public synchronized boolean updateCustomerInfo(String username, String address, String phone) {
+    Customer customer = getCustomerByUsername(username);
+    if (customer == null) {
+        return false;
+    }
+    customer.setAddress(address);
+    customer.setPhone(phone);
+    markDirty(DataManager.DataFile.USERS);
+    recordChanges(dataManager.userRecord(customer));
+    return true;
 }
 
 public User login(String username, String password) {
-    return users.stream()
-            .filter(user -> user.getUsername().equals(username) && 
-                           user.getPassword().equals(password))
-            .findFirst()
-            .orElse(null);
+    User user = username == null ? null : usersByUsername.get(username);
+    return user != null && user.getPassword().equals(password) ? user : null;
 }
 
 public Customer getCustomerByUsername(String username) {
-    return (Customer) users.stream()
-            .filter(user -> user instanceof Customer && 
-                           user.getUsername().equals(username))
-            .findFirst()
-            .orElse(null);
+    User user = username == null ? null : usersByUsername.get(username);
+    return user instanceof Customer ? (Customer) user : null;
 }
 
 public List<User> getAllCustomers() {
@@ -184,30 +1090,153 @@ public List<User> getAllCustomers() {
 }
 
 // Order Management
-public String generateOrderId() {
+public synchronized String generateOrderId() {
     return "ORD" + (orderIdCounter++);
 }
 
+/**
+ * Turns the customer's cart into an order: takes the stock, counts the sales towards popularity,
+ * clears the cart and records it all in one step, so a concurrent snapshot sees either none or
+ * all of it.
+ */
+public synchronized Order placeOrder(Customer customer) {
+    if (customer.getCart().isEmpty()) {
+        throw new IllegalStateException("Cart is empty");
+    }
+    Order order = new Order(generateOrderId(), customer);
+    List<Book> changedBooks = new ArrayList<>();
+    for (OrderItem item : customer.getCart().getItems()) {
+        order.addItem(new OrderItem(item.getBook(), item.getQuantity()));
+        // Get the actual book from the bookstore, not the one held by the cart
+        Book actualBook = getBookById(item.getBook().getId());
+        if (actualBook != null) {
+            actualBook.setStock(actualBook.getStock() - item.getQuantity());
+            actualBook.setPopularity(actualBook.getPopularity() + item.getQuantity());
+            changedBooks.add(actualBook);
+        }
+    }
+    customer.getCart().clear();
+    addOrder(order, changedBooks);
+    return order;
+}
+
 public void addOrder(Order order) {
+    addOrder(order, Collections.emptyList());
+}
+
+// Adds the order together with the books whose stock/popularity it changed, as one journal append
+public synchronized void addOrder(Order order, Collection<Book> changedBooks) {
     allOrders.add(order);
-    saveAllData();
+    orderIndex.add(order);
+    addToMonth(order);
+    if (categorySales != null && countsAsSale(order.getStatus())) {
+        addCategorySales(order, 1);
+    }
+    Customer customer = getCustomerByUsername(order.getCustomerUsername());
+    if (customer != null) {
+        customer.addOrder(order);
+    }
+    // Customer history is rebuilt from the order segments at load, so users.json stays untouched
+    markOrderDirty(order);
+    markDirty(DataManager.DataFile.CONFIG);
+    reindexBooks(changedBooks);
+    if (!changedBooks.isEmpty()) {
+        markDirty(DataManager.DataFile.BOOKS);
+    }
+    List<JournalEntry> entries = new ArrayList<>();
+    entries.add(dataManager.orderRecord(order));
+    entries.add(dataManager.orderIdCounterRecord(orderIdCounter));
+    for (Book book : changedBooks) {
+        entries.add(dataManager.bookRecord(book));
+    }
+    recordChanges(entries);
+}
+
+public void updateOrderStatus(Order order, String status) {
+    updateOrderStatus(order, status, Collections.emptyList());
+}
+
+public synchronized void updateOrderStatus(Order order, String status, Collection<Book> changedBooks) {
+    if (categorySales != null && countsAsSale(order.getStatus()) != countsAsSale(status)) {
+        addCategorySales(order, countsAsSale(status) ? 1 : -1);
+    }
+    order.setStatus(status);
+    orderIndex.statusChanged(order);
+    // Customer history shares this Order instance; only the order's month segment is rewritten
+    markOrderDirty(order);
+    reindexBooks(changedBooks);
+    if (!changedBooks.isEmpty()) {
+        markDirty(DataManager.DataFile.BOOKS);
+    }
+    List<JournalEntry> entries = new ArrayList<>();
+    entries.add(dataManager.orderRecord(order));
+    for (Book book : changedBooks) {
+        entries.add(dataManager.bookRecord(book));
+    }
+    recordChanges(entries);
+}
+
+// Cancels a PENDING order and puts its items back in stock; false if it is not pending
+public synchronized boolean cancelPendingOrder(String orderId) {
+    Order order = getOrderById(orderId);
+    if (order == null || !order.getStatus().equals("PENDING")) {
+        return false;
+    }
+    List<Book> changedBooks = new ArrayList<>();
+    for (OrderItem item : order.getItems()) {
+        Book actualBook = getBookById(item.getBook().getId());
+        if (actualBook != null) {
+            actualBook.setStock(actualBook.getStock() + item.getQuantity());
+            // The sale no longer counts towards popularity
+            actualBook.setPopularity(Math.max(0, actualBook.getPopularity() - item.getQuantity()));
+            changedBooks.add(actualBook);
+        }
+    }
+    updateOrderStatus(order, "CANCELLED", changedBooks);
+    return true;
 }
 
-public List<Order> getAllOrders() {
+public synchronized List<Order> getAllOrders() {
+    loadArchivedOrders();
     return new ArrayList<>(allOrders);
 }
 
+public int getOrderCount() {
+    loadArchivedOrders();
+    return orderIndex.size();
+}
+
 public List<Order> getPendingOrders() {
-    return allOrders.stream()
-            .filter(order -> order.getStatus().equals("PENDING"))
-            .collect(Collectors.toList());
+    return getOrdersByStatus("PENDING");
+}
+
+// Only SHIPPED/CANCELLED orders can be in sealed months, so other statuses skip the archive
+public List<Order> getOrdersByStatus(String status) {
+    if (OrderSegmentStore.isFinalStatus(status)) {
+        loadArchivedOrders();
+    }
+    return orderIndex.withStatus(status);
+}
+
+public int countOrdersByStatus(String status) {
+    if (OrderSegmentStore.isFinalStatus(status)) {
+        loadArchivedOrders();
+    }
+    return orderIndex.countWithStatus(status);
+}
+
+public List<Order> getOrdersForCustomer(String username) {
+    loadArchivedOrders();
+    return orderIndex.forCustomer(username);
 }
 
 public Order getOrderById(String orderId) {
-    return allOrders.stream()
-            .filter(order -> order.getOrderId().equals(orderId))
-            .findFirst()
-            .orElse(null);
+    Order found = orderIndex.get(orderId);
+    if (found == null && !unloadedSealedMonths.isEmpty()) {
+        loadArchivedOrders();
+        found = orderIndex.get(orderId);
+    }
+    return found;
 }
 
 // Categories
@@ -215,46 +1244,85 @@ public Set<String> getCategories() {
     return new HashSet<>(categories);
 }
 
-public void addCategory(String category) {
-    categories.add(category);
-    saveAllData();
+public synchronized void addCategory(String category) {
+    if (registerCategory(category)) {
+        markDirty(DataManager.DataFile.CATEGORIES);
+    }
+    recordChanges(dataManager.categoryRecord(category));
 }
 
 // Reviews
-public void addReview(Review review) {
+public synchronized void addReview(Review review) {
     allReviews.add(review);
-    saveAllData();
+    reviewIndex.add(review);
+    catalogVersion++; // book listings carry rating summaries
+    Customer customer = getCustomerByUsername(review.getCustomerUsername());
+    if (customer != null) {
+        customer.addReview(review);
+    }
+    // Customer reviews are rebuilt from reviews.json at load
+    markDirty(DataManager.DataFile.REVIEWS);
+    recordChanges(dataManager.reviewRecord(review));
 }
 
 public List<Review> getReviewsForBook(String bookId) {
-    return allReviews.stream()
-            .filter(review -> review.getBookId().equals(bookId))
-            .collect(Collectors.toList());
+    return reviewIndex.reviewsFor(bookId);
+}
+
+public int getReviewCount(String bookId) {
+    return reviewIndex.count(bookId);
+}
+
+public double getAverageRating(String bookId) {
+    return reviewIndex.averageRating(bookId);
+}
+
+// Reviews per rating, index 0 holding 1-star reviews
+public int[] getRatingDistribution(String bookId) {
+    return reviewIndex.distribution(bookId);
 }
 
 // Statistics
-public Map<String, Integer> getCategorySalesStatistics() {
-    Map<String, Integer> stats = new HashMap<>();
-    for (Order order : allOrders) {
-        if (order.getStatus().equals("CONFIRMED") || 
-            order.getStatus().equals("SHIPPED")) {
-            for (OrderItem item : order.getItems()) {
-                String category = item.getBook().getCategory();
-                stats.put(category, stats.getOrDefault(category, 0) + item.getQuantity());
+public synchronized Map<String, Integer> getCategorySalesStatistics() {
+    if (categorySales == null) {
+        loadArchivedOrders();
+        categorySales = new HashMap<>();
+        for (Order order : allOrders) {
+            if (countsAsSale(order.getStatus())) {
+                addCategorySales(order, 1);
             }
         }
     }
-    return stats;
+    return new HashMap<>(categorySales);
+}
+
+private boolean countsAsSale(String status) {
+    return "CONFIRMED".equals(status) || "SHIPPED".equals(status);
+}
+
+// Adds (sign 1) or removes (sign -1) the order's units from the running category totals
+private void addCategorySales(Order order, int sign) {
+    for (OrderItem item : order.getItems()) {
+        String category = item.getBookCategory() != null ? item.getBookCategory() : "";
+        int units = categorySales.getOrDefault(category, 0) + sign * item.getQuantity();
+        if (units == 0) {
+            categorySales.remove(category);
+        } else {
+            categorySales.put(category, units);
+        }
+    }
 }
 
 public List<Book> getTopSellingBooks(int limit) {
-    return books.stream()
-            .sorted(Comparator.comparingInt(Book::getPopularity).reversed())
-            .limit(limit)
-            .collect(Collectors.toList());
+    return bestsellers().top(limit);
+}
+
+public List<Book> getTopSellingBooks(String category, int limit) {
+    return bestsellers().topInCategory(category, limit);
 }
 
 public double getTotalRevenue() {
+    loadArchivedOrders();
     return allOrders.stream()
             .filter(order -> order.getStatus().equals("CONFIRMED") || 
                            order.getStatus().equals("SHIPPED"))
@@ -0,0 +1,69 @@
+// CategoryIndex.java - Secondary index from category to the books in it
+import java.util.*;
+
+/**
+ * Groups the catalog by normalized category name (trimmed, lower-case) so a category page
+ * costs O(books in the category). Books are kept in catalog order via an insertion sequence
+ * that survives updateBook replacing the entry. Registered categories without books are
+ * kept as empty groups.
+ */
+public class CategoryIndex {
+    private final Map<String, TreeMap<Long, Book>> byCategory = new HashMap<>();
+    private final Map<String, Long> sequenceById = new HashMap<>();
+    private final Map<String, String> categoryById = new HashMap<>();
+    private long nextSequence;
+
+    public CategoryIndex(List<Book> books, Collection<String> categories) {
+        for (String category : categories) {
+            registerCategory(category);
+        }
+        for (Book book : books) {
+            add(book);
+        }
+    }
+
+    public static String normalize(String category) {
+        return category == null ? "" : category.trim().toLowerCase(Locale.ROOT);
+    }
+
+    public synchronized void registerCategory(String category) {
+        byCategory.computeIfAbsent(normalize(category), k -> new TreeMap<>());
+    }
+
+    public synchronized void add(Book book) {
+        long sequence = nextSequence++;
+        String key = normalize(book.getCategory());
+        sequenceById.put(book.getId(), sequence);
+        categoryById.put(book.getId(), key);
+        byCategory.computeIfAbsent(key, k -> new TreeMap<>()).put(sequence, book);
+    }
+
+    // Replace the entry with the same id, moving it if its category changed
+    public synchronized void update(Book book) {
+        Long sequence = sequenceById.get(book.getId());
+        if (sequence == null) {
+            add(book);
+            return;
+        }
+        String oldKey = categoryById.get(book.getId());
+        String newKey = normalize(book.getCategory());
+        if (!newKey.equals(oldKey)) {
+            byCategory.get(oldKey).remove(sequence);
+            categoryById.put(book.getId(), newKey);
+        }
+        byCategory.computeIfAbsent(newKey, k -> new TreeMap<>()).put(sequence, book);
+    }
+
+    public synchronized void remove(String bookId) {
+        Long sequence = sequenceById.remove(bookId);
+        if (sequence != null) {
+            byCategory.get(categoryById.remove(bookId)).remove(sequence);
+        }
+    }
+
+    // Books in the category, in catalog order; empty for unknown categories
+    public synchronized List<Book> booksIn(String category) {
+        TreeMap<Long, Book> books = byCategory.get(normalize(category));
+        return books == null ? new ArrayList<>() : new ArrayList<>(books.values());
+    }
+}
@@ -1,11 +1,21 @@
 // DataManager.java - JSON-based Data Persistence
 import com.google.gson.*;
 import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
 import java.io.*;
 import java.lang.reflect.Type;
-import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.YearMonth;
 import java.util.*;
+import java.util.function.Consumer;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
 
 public class DataManager {
     private static final String DATA_DIR = "bookstore_data";
@@ -15,8 +25,46 @@ public class DataManager {
     private static final String REVIEWS_FILE = DATA_DIR + "/reviews.json";
     private static final String CATEGORIES_FILE = DATA_DIR + "/categories.json";
     private static final String CONFIG_FILE = DATA_DIR + "/config.json";
+    private static final String JOURNAL_FILE = DATA_DIR + "/journal.log";
+    private static final String BOOKS_SNAPSHOT = DATA_DIR + "/books.bin";
+    private static final String ORDERS_SNAPSHOT = DATA_DIR + "/orders.bin";
+    private static final String ORDER_SEGMENTS_DIR = DATA_DIR + "/orders";
+    private static final String ORDERS_EXPORT_FILE = DATA_DIR + "/orders-export.json";
+    // A pre-segment order file is renamed with this suffix once its orders are in segments
+    private static final String MIGRATED_SUFFIX = ".migrated";
+    
+    // The independently saved data files, used to track which ones need rewriting
+    public enum DataFile {
+        USERS(USERS_FILE), BOOKS(BOOKS_FILE), ORDERS(ORDERS_FILE),
+        REVIEWS(REVIEWS_FILE), CATEGORIES(CATEGORIES_FILE), CONFIG(CONFIG_FILE);
+
+        private final String path;
+
+        DataFile(String path) { this.path = path; }
+
+        public String getPath() { return path; }
+    }
+    
+    // -Dbookstore.reflectiveJson=true falls back to Gson's reflective adapters for the model classes
+    private static final boolean REFLECTIVE_JSON = Boolean.getBoolean("bookstore.reflectiveJson");
     
     private Gson gson;
+    private Gson journalGson; // compact (single-line) output for journal records
+    private final AtomicFileStore fileStore = new AtomicFileStore();
+    private boolean binarySnapshots; // books/orders saved as binary snapshots
+    private boolean compressSealedOrders = true;
+    private final OrderSegmentStore orderSegments = new OrderSegmentStore(Paths.get(ORDER_SEGMENTS_DIR));
+    private volatile boolean legacyOrdersLoaded; // orders came from orders.json/orders.bin, not segments
+    
+    // Streaming loads read through a fixed buffer and report progress every PROGRESS_INTERVAL items
+    private static final int STREAM_BUFFER_SIZE = 64 * 1024;
+    private static final int PROGRESS_INTERVAL = 10_000;
+    private final LoadProgressListener progressListener = (file, items, bytesRead, totalBytes) -> {
+        if (items % (PROGRESS_INTERVAL * 10) == 0 && bytesRead < totalBytes) {
+            System.out.println("… " + getLocation(file) + ": " + items + " records (" +
+                               (bytesRead * 100 / Math.max(1, totalBytes)) + "%)");
+        }
+    };
 
     public DataManager() {
         createDataDirectory();
@@ -34,109 +82,192 @@ public class DataManager {
     }
 
     private void initializeGson() {
-        gson = new GsonBuilder()
-                .setPrettyPrinting()
-                .registerTypeAdapter(LocalDateTime.class, new LocalDateTimeAdapter())
-                .create();
+        gson = newGsonBuilder().setPrettyPrinting().create();
+        journalGson = newGsonBuilder().create();
+    }
+
+    private GsonBuilder newGsonBuilder() {
+        GsonBuilder builder = JsonTypeAdapters.register(new GsonBuilder(), !REFLECTIVE_JSON);
+        if (!REFLECTIVE_JSON) {
+            builder.registerTypeAdapter(UserData.class, new UserDataAdapter().nullSafe());
+        }
+        return builder;
     }
 
     // ============== SAVE METHODS ==============
 
-    public void saveUsers(List<User> users) {
-        // Convert User objects into serializable UserData objects that include userType
-        List<UserData> userDataList = new ArrayList<>();
-        for (User u : users) {
-            UserData ud = new UserData();
-            ud.username = u.getUsername();
-            ud.password = u.getPassword();
-            ud.userType = u.getUserType();
-
-            if (u instanceof Customer) {
-                Customer c = (Customer) u;
-                ud.address = c.getAddress();
-                ud.phone = c.getPhone();
-                ud.orderHistory = new ArrayList<>(c.getOrderHistory());
-                ud.reviews = new ArrayList<>(c.getReviews());
-            } else if (u instanceof Admin) {
-                // Admin has no extra fields for now; keep empty lists to preserve structure
-                ud.orderHistory = new ArrayList<>();
-                ud.reviews = new ArrayList<>();
-            } else {
-                // Unknown user type: attempt to preserve minimal info
-                ud.orderHistory = new ArrayList<>();
-                ud.reviews = new ArrayList<>();
-            }
-            userDataList.add(ud);
+    /**
+     * Atomically replace several data files and order segments in one durable commit.
+     * Throws if the commit failed, so the caller can keep the journal that still holds the changes.
+     */
+    public void writeFiles(Map<DataFile, byte[]> files, Map<Path, byte[]> encodedOrderSegments)
+            throws IOException {
+        Map<Path, byte[]> contents = new LinkedHashMap<>();
+        for (Map.Entry<DataFile, byte[]> file : files.entrySet()) {
+            contents.put(storagePath(file.getKey()), file.getValue());
         }
+        contents.putAll(encodedOrderSegments);
 
-        try (Writer writer = new FileWriter(USERS_FILE)) {
-            gson.toJson(userDataList, writer);
-            System.out.println("✓ Saved " + userDataList.size() + " users");
+        // A month rewritten as sealed (or in another format) replaces its previous file
+        List<Path> staleSegments = new ArrayList<>();
+        for (Path segment : encodedOrderSegments.keySet()) {
+            staleSegments.addAll(orderSegments.otherVariants(segment));
+        }
+
+        try {
+            if (!encodedOrderSegments.isEmpty()) {
+                orderSegments.ensureDirectory();
+            }
+            fileStore.replaceAll(contents, staleSegments);
+            for (Path path : contents.keySet()) {
+                System.out.println("✓ Saved " + path);
+            }
+            if (!encodedOrderSegments.isEmpty() && legacyOrdersLoaded) {
+                retireLegacyOrders();
+            }
         } catch (IOException e) {
-            System.err.println("✗ Error saving users: " + e.getMessage());
+            System.err.println("✗ Error saving " + contents.keySet() + ": " + e.getMessage());
+            throw e;
         }
     }
 
-    public void saveBooks(List<Book> books) {
-        // Convert decorated books to BasicBook for JSON storage
-        // Extract decorator information and store in BasicBook metadata fields
-        List<BasicBook> basicBooks = new ArrayList<>();
-        for (Book book : books) {
-            BasicBook baseBook = book.getBaseBook();
-            
-            // Store decorator metadata for persistence
-            baseBook.setFeatured(book.isFeatured());
-            if (book.isDiscounted()) {
-                baseBook.setDiscountPercentage(book.getDiscountPercentage() / 100.0);
-            } else {
-                baseBook.setDiscountPercentage(0.0);
+    // The migrated orders now live in segments; keep the old file as a backup that is never loaded
+    private void retireLegacyOrders() {
+        for (String legacy : new String[] {ORDERS_FILE, ORDERS_SNAPSHOT}) {
+            Path path = Paths.get(legacy);
+            if (Files.exists(path)) {
+                try {
+                    Files.move(path, Paths.get(legacy + MIGRATED_SUFFIX), StandardCopyOption.REPLACE_EXISTING);
+                    System.out.println("ℹ Orders migrated to " + ORDER_SEGMENTS_DIR + "; renamed " +
+                                       legacy + " to " + legacy + MIGRATED_SUFFIX);
+                } catch (IOException e) {
+                    System.err.println("✗ Error renaming " + legacy + ": " + e.getMessage());
+                    return;
+                }
             }
-            
-            basicBooks.add(baseBook);
         }
-        
-        try (Writer writer = new FileWriter(BOOKS_FILE)) {
-            gson.toJson(basicBooks, writer);
-            System.out.println("✓ Saved " + basicBooks.size() + " books");
-        } catch (IOException e) {
-            System.err.println("✗ Error saving books: " + e.getMessage());
+        legacyOrdersLoaded = false;
+    }
+
+    // Where a data file is read from: orders come from the segment directory once it exists
+    public String getLocation(DataFile file) {
+        if (file == DataFile.ORDERS && orderSegments.hasSegments()) {
+            return ORDER_SEGMENTS_DIR + "/";
         }
+        return file.getPath();
     }
 
-    public void saveOrders(List<Order> orders) {
-        try (Writer writer = new FileWriter(ORDERS_FILE)) {
-            gson.toJson(orders, writer);
-            System.out.println("✓ Saved " + orders.size() + " orders");
-        } catch (IOException e) {
-            System.err.println("✗ Error saving orders: " + e.getMessage());
+    // Books and orders go to their binary snapshot files when binary snapshots are enabled
+    private Path storagePath(DataFile file) {
+        if (binarySnapshots && file == DataFile.BOOKS) {
+            return Paths.get(BOOKS_SNAPSHOT);
         }
+        if (binarySnapshots && file == DataFile.ORDERS) {
+            return Paths.get(ORDERS_SNAPSHOT);
+        }
+        return Paths.get(file.getPath());
+    }
+
+    public void setBinarySnapshots(boolean binarySnapshots) {
+        this.binarySnapshots = binarySnapshots;
     }
 
-    public void saveReviews(List<Review> reviews) {
-        try (Writer writer = new FileWriter(REVIEWS_FILE)) {
-            gson.toJson(reviews, writer);
-            System.out.println("✓ Saved " + reviews.size() + " reviews");
+    public void setCompressSealedOrders(boolean compressSealedOrders) {
+        this.compressSealedOrders = compressSealedOrders;
+    }
+
+    /**
+     * JSON stays the interchange format: writes books.json regardless of mode, and every order
+     * (active and sealed) to orders-export.json. The export is a copy for other tools and is
+     * never loaded; the segments under orders/ remain the only stored orders.
+     */
+    public void exportJson(List<Book> books, List<Order> orders) {
+        try {
+            Map<Path, byte[]> contents = new LinkedHashMap<>();
+            contents.put(Paths.get(BOOKS_FILE), toJsonBytes(persistentBooks(books)));
+            contents.put(Paths.get(ORDERS_EXPORT_FILE), toJsonBytes(orders));
+            fileStore.replaceAll(contents);
+            System.out.println("✓ Exported " + BOOKS_FILE + " and " + ORDERS_EXPORT_FILE);
         } catch (IOException e) {
-            System.err.println("✗ Error saving reviews: " + e.getMessage());
+            System.err.println("✗ Error exporting JSON: " + e.getMessage());
         }
     }
 
-    public void saveCategories(Set<String> categories) {
-        try (Writer writer = new FileWriter(CATEGORIES_FILE)) {
-            gson.toJson(categories, writer);
-            System.out.println("✓ Saved " + categories.size() + " categories");
-        } catch (IOException e) {
-            System.err.println("✗ Error saving categories: " + e.getMessage());
+    // ============== ENCODE METHODS ==============
+    // Encoding is separate from writing so callers can snapshot state and do the I/O elsewhere
+
+    public byte[] encodeUsers(List<User> users) {
+        // Convert User objects into serializable UserData objects that include userType.
+        // Order history and reviews are not embedded: orders.json and reviews.json are canonical
+        List<UserData> userDataList = new ArrayList<>();
+        for (User u : users) {
+            userDataList.add(toUserData(u));
+        }
+        return toJsonBytes(userDataList);
+    }
+
+    public byte[] encodeBooks(List<Book> books) {
+        List<BasicBook> basicBooks = persistentBooks(books);
+        return binarySnapshots ? BinarySnapshot.writeBooks(basicBooks) : toJsonBytes(basicBooks);
+    }
+
+    /**
+     * Encodes one file per month. Months that can be sealed are written in their final,
+     * immutable form: gzip-compressed JSON, or an uncompressed binary snapshot.
+     */
+    public Map<Path, byte[]> encodeOrderSegments(Map<YearMonth, List<Order>> segments) {
+        Map<Path, byte[]> encoded = new LinkedHashMap<>();
+        for (Map.Entry<YearMonth, List<Order>> segment : segments.entrySet()) {
+            YearMonth month = segment.getKey();
+            List<Order> orders = segment.getValue();
+            boolean sealed = OrderSegmentStore.canSeal(month, orders);
+            if (binarySnapshots) {
+                encoded.put(orderSegments.pathFor(month, sealed, OrderSegmentStore.Format.BINARY),
+                            BinarySnapshot.writeOrders(orders));
+            } else if (sealed && compressSealedOrders) {
+                encoded.put(orderSegments.pathFor(month, true, OrderSegmentStore.Format.GZIP_JSON),
+                            gzip(toJsonBytes(orders)));
+            } else {
+                encoded.put(orderSegments.pathFor(month, sealed, OrderSegmentStore.Format.JSON),
+                            toJsonBytes(orders));
+            }
         }
+        return encoded;
     }
 
-    public void saveConfig(Map<String, Object> config) {
-        try (Writer writer = new FileWriter(CONFIG_FILE)) {
-            gson.toJson(config, writer);
-            System.out.println("✓ Saved configuration");
+    private byte[] gzip(byte[] content) {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(content.length / 4 + 64);
+        try (GZIPOutputStream out = new GZIPOutputStream(compressed)) {
+            out.write(content);
         } catch (IOException e) {
-            System.err.println("✗ Error saving config: " + e.getMessage());
+            throw new UncheckedIOException(e);
+        }
+        return compressed.toByteArray();
+    }
+
+    public byte[] encodeReviews(List<Review> reviews) {
+        return toJsonBytes(reviews);
+    }
+
+    public byte[] encodeCategories(Set<String> categories) {
+        return toJsonBytes(categories);
+    }
+
+    public byte[] encodeConfig(Map<String, Object> config) {
+        return toJsonBytes(config);
+    }
+
+    private byte[] toJsonBytes(Object value) {
+        return gson.toJson(value).getBytes(StandardCharsets.UTF_8);
+    }
+
+    // Convert decorated books to BasicBook for storage
+    private List<BasicBook> persistentBooks(List<Book> books) {
+        List<BasicBook> basicBooks = new ArrayList<>(books.size());
+        for (Book book : books) {
+            basicBooks.add(toPersistentBook(book));
         }
+        return basicBooks;
     }
 
     // ============== LOAD METHODS ==============
@@ -148,45 +279,13 @@ public class DataManager {
             return new ArrayList<>();
         }
 
-        try (Reader reader = new FileReader(file)) {
+        try (Reader reader = new FileReader(file, StandardCharsets.UTF_8)) {
             Type userListType = new TypeToken<List<UserData>>(){}.getType();
             List<UserData> userData = gson.fromJson(reader, userListType);
             
             List<User> users = new ArrayList<>();
             for (UserData data : userData) {
-                String type = data.userType;
-
-                // If userType is missing (old files), try to infer: common default admin username
-                if (type == null) {
-                    if (data.username != null && data.username.equalsIgnoreCase("admin")) {
-                        type = "ADMIN";
-                        System.out.println("⚠ Infering userType=ADMIN for username '" + data.username + "'");
-                    } else if ((data.address == null || data.address.isEmpty()) &&
-                               (data.phone == null || data.phone.isEmpty()) &&
-                               (data.orderHistory == null || data.orderHistory.isEmpty()) &&
-                               (data.reviews == null || data.reviews.isEmpty())) {
-                        // Heuristic: no customer-specific data -> treat as ADMIN
-                        type = "ADMIN";
-                        System.out.println("⚠ Infering userType=ADMIN for username '" + data.username + "' (no customer fields)");
-                    } else {
-                        type = "CUSTOMER";
-                        System.out.println("⚠ Infering userType=CUSTOMER for username '" + data.username + "'");
-                    }
-                }
-
-                if ("ADMIN".equals(type)) {
-                    users.add(new Admin(data.username, data.password));
-                } else {
-                    Customer customer = new Customer(data.username, data.password, 
-                                                    data.address, data.phone);
-                    if (data.orderHistory != null) {
-                        customer.getOrderHistory().addAll(data.orderHistory);
-                    }
-                    if (data.reviews != null) {
-                        customer.getReviews().addAll(data.reviews);
-                    }
-                    users.add(customer);
-                }
+                users.add(toUser(data));
             }
             System.out.println("✓ Loaded " + users.size() + " users");
             return users;
@@ -197,34 +296,27 @@ public class DataManager {
     }
 
     public List<Book> loadBooks() {
+        File snapshot = new File(BOOKS_SNAPSHOT);
         File file = new File(BOOKS_FILE);
+        if (isCurrentSnapshot(snapshot, file)) {
+            try {
+                List<Book> books = BinarySnapshot.readBooks(snapshot.toPath(), this::decorateBook);
+                System.out.println("✓ Loaded " + books.size() + " books from " + BOOKS_SNAPSHOT);
+                return books;
+            } catch (IOException e) {
+                System.err.println("✗ Error reading book snapshot, falling back to JSON: " + e.getMessage());
+            }
+        }
         if (!file.exists()) {
             System.out.println("ℹ No saved books found");
             return new ArrayList<>();
         }
 
-        try (Reader reader = new FileReader(file)) {
-            Type bookListType = new TypeToken<List<BasicBook>>(){}.getType();
-            List<BasicBook> basicBooks = gson.fromJson(reader, bookListType);
-            
-            // Apply decorators based on metadata
+        try {
+            // Decode one book at a time and apply decorators as we go
             List<Book> books = new ArrayList<>();
-            for (BasicBook basicBook : basicBooks) {
-                Book book = basicBook;
-                
-                // Apply discount decorator if needed
-                if (basicBook.getDiscountPercentageMetadata() > 0) {
-                    book = new DiscountedBook(book, basicBook.getDiscountPercentageMetadata());
-                }
-                
-                // Apply featured decorator if needed
-                if (basicBook.getFeaturedMetadata()) {
-                    book = new FeaturedBook(book);
-                }
-                
-                books.add(book);
-            }
-            
+            streamArray(file, DataFile.BOOKS, BasicBook.class,
+                    basicBook -> books.add(decorateBook(basicBook)));
             System.out.println("✓ Loaded " + books.size() + " books");
             return books;
         } catch (IOException e) {
@@ -233,16 +325,86 @@ public class DataManager {
         }
     }
 
+    public boolean hasOrderSegments() {
+        return orderSegments.hasSegments();
+    }
+
+    // Active (unsealed) order segments; falls back to the single-file format from before segments
     public List<Order> loadOrders() {
+        if (orderSegments.hasSegments()) {
+            if (new File(ORDERS_FILE).exists() || new File(ORDERS_SNAPSHOT).exists()) {
+                System.out.println("⚠ Ignoring " + ORDERS_FILE + ": orders are stored in " + ORDER_SEGMENTS_DIR);
+            }
+            List<Order> orders = loadOrderSegments(false);
+            System.out.println("✓ Loaded " + orders.size() + " active orders");
+            return orders;
+        }
+        List<Order> orders = loadLegacyOrders();
+        legacyOrdersLoaded = !orders.isEmpty();
+        return orders;
+    }
+
+    // Sealed archive segments, read on demand
+    public List<Order> loadArchivedOrders() {
+        List<Order> orders = loadOrderSegments(true);
+        System.out.println("✓ Loaded " + orders.size() + " archived orders");
+        return orders;
+    }
+
+    public Set<YearMonth> getSealedOrderMonths() {
+        Set<YearMonth> months = new HashSet<>();
+        for (OrderSegmentStore.Segment segment : orderSegments.listSegments()) {
+            if (segment.sealed) {
+                months.add(segment.month);
+            }
+        }
+        return months;
+    }
+
+    private List<Order> loadOrderSegments(boolean sealed) {
+        List<Order> orders = new ArrayList<>();
+        for (OrderSegmentStore.Segment segment : orderSegments.listSegments()) {
+            if (segment.sealed != sealed) {
+                continue;
+            }
+            try {
+                if (segment.format == OrderSegmentStore.Format.BINARY) {
+                    orders.addAll(BinarySnapshot.readOrders(segment.path));
+                } else {
+                    File file = segment.path.toFile();
+                    InputStream in = new FileInputStream(file);
+                    if (segment.format == OrderSegmentStore.Format.GZIP_JSON) {
+                        in = new GZIPInputStream(in, STREAM_BUFFER_SIZE);
+                    }
+                    streamArray(in, file, DataFile.ORDERS, Order.class, orders::add);
+                }
+            } catch (IOException e) {
+                System.err.println("✗ Error loading order segment " + segment.path + ": " + e.getMessage());
+            }
+        }
+        return orders;
+    }
+
+    private List<Order> loadLegacyOrders() {
+        File snapshot = new File(ORDERS_SNAPSHOT);
         File file = new File(ORDERS_FILE);
+        if (isCurrentSnapshot(snapshot, file)) {
+            try {
+                List<Order> orders = BinarySnapshot.readOrders(snapshot.toPath());
+                System.out.println("✓ Loaded " + orders.size() + " orders from " + ORDERS_SNAPSHOT);
+                return orders;
+            } catch (IOException e) {
+                System.err.println("✗ Error reading order snapshot, falling back to JSON: " + e.getMessage());
+            }
+        }
         if (!file.exists()) {
             System.out.println("ℹ No saved orders found");
             return new ArrayList<>();
         }
 
-        try (Reader reader = new FileReader(file)) {
-            Type orderListType = new TypeToken<List<Order>>(){}.getType();
-            List<Order> orders = gson.fromJson(reader, orderListType);
+        try {
+            List<Order> orders = new ArrayList<>();
+            streamArray(file, DataFile.ORDERS, Order.class, orders::add);
             System.out.println("✓ Loaded " + orders.size() + " orders");
             return orders;
         } catch (IOException e) {
@@ -258,7 +420,7 @@ public class DataManager {
             return new ArrayList<>();
         }
 
-        try (Reader reader = new FileReader(file)) {
+        try (Reader reader = new FileReader(file, StandardCharsets.UTF_8)) {
             Type reviewListType = new TypeToken<List<Review>>(){}.getType();
             List<Review> reviews = gson.fromJson(reader, reviewListType);
             System.out.println("✓ Loaded " + reviews.size() + " reviews");
@@ -276,7 +438,7 @@ public class DataManager {
             return new HashSet<>();
         }
 
-        try (Reader reader = new FileReader(file)) {
+        try (Reader reader = new FileReader(file, StandardCharsets.UTF_8)) {
             Type categorySetType = new TypeToken<Set<String>>(){}.getType();
             Set<String> categories = gson.fromJson(reader, categorySetType);
             System.out.println("✓ Loaded " + categories.size() + " categories");
@@ -294,7 +456,7 @@ public class DataManager {
             return new HashMap<>();
         }
 
-        try (Reader reader = new FileReader(file)) {
+        try (Reader reader = new FileReader(file, StandardCharsets.UTF_8)) {
             Type configType = new TypeToken<Map<String, Object>>(){}.getType();
             Map<String, Object> config = gson.fromJson(reader, configType);
             System.out.println("✓ Loaded configuration");
@@ -305,8 +467,273 @@ public class DataManager {
         }
     }
 
+    // A binary snapshot wins unless the JSON file was written (or imported) after it
+    private boolean isCurrentSnapshot(File snapshot, File json) {
+        return snapshot.exists() && (!json.exists() || snapshot.lastModified() >= json.lastModified());
+    }
+
+    /**
+     * Streams a JSON array element by element through a fixed-size read buffer, so the
+     * raw list is never materialized next to the decoded objects. Progress is reported
+     * to the listener as the file is consumed.
+     */
+    private <T> void streamArray(File file, DataFile dataFile, Class<T> elementType,
+                                 Consumer<T> consumer) throws IOException {
+        streamArray(new FileInputStream(file), file, dataFile, elementType, consumer);
+    }
+
+    private <T> void streamArray(InputStream in, File file, DataFile dataFile, Class<T> elementType,
+                                 Consumer<T> consumer) throws IOException {
+        TypeAdapter<T> adapter = gson.getAdapter(elementType);
+        long totalBytes = file.length();
+        try (CountingInputStream counter = new CountingInputStream(in);
+             JsonReader reader = new JsonReader(new BufferedReader(
+                     new InputStreamReader(counter, StandardCharsets.UTF_8), STREAM_BUFFER_SIZE))) {
+            if (reader.peek() == JsonToken.NULL) {
+                return;
+            }
+            long count = 0;
+            reader.beginArray();
+            while (reader.hasNext()) {
+                consumer.accept(adapter.read(reader));
+                if (++count % PROGRESS_INTERVAL == 0) {
+                    progressListener.onProgress(dataFile, count, counter.getCount(), totalBytes);
+                }
+            }
+            reader.endArray();
+            progressListener.onProgress(dataFile, count, totalBytes, totalBytes);
+        } catch (JsonParseException | IllegalStateException e) {
+            throw new IOException("Malformed " + file.getName() + ": " + e.getMessage(), e);
+        }
+    }
+
+    // ============== JOURNAL METHODS ==============
+
+    /**
+     * Appends a batch of mutation records to the journal in a single write.
+     * Each record is one compact JSON line: {"op":"...","data":{...}}. Throws if the records
+     * could not be made durable.
+     */
+    public void appendJournal(List<JournalEntry> entries) throws IOException {
+        if (entries.isEmpty()) {
+            return;
+        }
+        StringBuilder batch = new StringBuilder();
+        for (JournalEntry entry : entries) {
+            batch.append(journalGson.toJson(entry)).append('\n');
+        }
+
+        try {
+            fileStore.append(Paths.get(JOURNAL_FILE), batch.toString().getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            System.err.println("✗ Error appending to journal: " + e.getMessage());
+            throw e;
+        }
+    }
+
+    public List<JournalEntry> loadJournal() {
+        File file = new File(JOURNAL_FILE);
+        List<JournalEntry> entries = new ArrayList<>();
+        if (!file.exists()) {
+            return entries;
+        }
+
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                try {
+                    entries.add(journalGson.fromJson(line, JournalEntry.class));
+                } catch (JsonParseException e) {
+                    // A torn last record from a crash mid-append; everything before it is intact
+                    System.err.println("⚠ Ignoring unreadable journal record: " + e.getMessage());
+                    break;
+                }
+            }
+            System.out.println("✓ Loaded " + entries.size() + " journal records");
+        } catch (IOException e) {
+            System.err.println("✗ Error loading journal: " + e.getMessage());
+        }
+        return entries;
+    }
+
+    public void clearJournal() {
+        try {
+            fileStore.delete(Paths.get(JOURNAL_FILE));
+        } catch (IOException e) {
+            System.err.println("✗ Error clearing journal: " + e.getMessage());
+        }
+    }
+
+    // ============== JOURNAL RECORD CONVERSION ==============
+
+    public JournalEntry bookRecord(Book book) {
+        return new JournalEntry(JournalEntry.BOOK_PUT, journalGson.toJsonTree(toPersistentBook(book)));
+    }
+
+    public JournalEntry bookRemovedRecord(String bookId) {
+        return new JournalEntry(JournalEntry.BOOK_REMOVE, new JsonPrimitive(bookId));
+    }
+
+    public JournalEntry userRecord(User user) {
+        // Order history and reviews are journaled through their own records
+        return new JournalEntry(JournalEntry.USER_PUT, journalGson.toJsonTree(toUserData(user)));
+    }
+
+    public JournalEntry orderRecord(Order order) {
+        return new JournalEntry(JournalEntry.ORDER_PUT, journalGson.toJsonTree(order));
+    }
+
+    public JournalEntry reviewRecord(Review review) {
+        return new JournalEntry(JournalEntry.REVIEW_ADD, journalGson.toJsonTree(review));
+    }
+
+    public JournalEntry categoryRecord(String category) {
+        return new JournalEntry(JournalEntry.CATEGORY_ADD, new JsonPrimitive(category));
+    }
+
+    public JournalEntry orderIdCounterRecord(int orderIdCounter) {
+        return new JournalEntry(JournalEntry.ORDER_COUNTER, new JsonPrimitive(orderIdCounter));
+    }
+
+    public Book decodeBook(JournalEntry entry) {
+        return decorateBook(journalGson.fromJson(entry.getData(), BasicBook.class));
+    }
+
+    public User decodeUser(JournalEntry entry) {
+        return toUser(journalGson.fromJson(entry.getData(), UserData.class));
+    }
+
+    public Order decodeOrder(JournalEntry entry) {
+        return journalGson.fromJson(entry.getData(), Order.class);
+    }
+
+    public Review decodeReview(JournalEntry entry) {
+        return journalGson.fromJson(entry.getData(), Review.class);
+    }
+
+    // ============== CONVERSION HELPERS ==============
+
+    // Extract decorator information and store it in the BasicBook metadata fields
+    private BasicBook toPersistentBook(Book book) {
+        BasicBook baseBook = book.getBaseBook();
+        baseBook.setFeatured(book.isFeatured());
+        if (book.isDiscounted()) {
+            baseBook.setDiscountPercentage(book.getDiscountPercentage() / 100.0);
+        } else {
+            baseBook.setDiscountPercentage(0.0);
+        }
+        return baseBook;
+    }
+
+    // Apply decorators based on the persisted metadata
+    private Book decorateBook(BasicBook basicBook) {
+        Book book = basicBook;
+        
+        // Apply discount decorator if needed
+        if (basicBook.getDiscountPercentageMetadata() > 0) {
+            book = new DiscountedBook(book, basicBook.getDiscountPercentageMetadata());
+        }
+        
+        // Apply featured decorator if needed
+        if (basicBook.getFeaturedMetadata()) {
+            book = new FeaturedBook(book);
+        }
+        return book;
+    }
+
+    // Convert User objects into serializable UserData objects that include userType
+    private UserData toUserData(User u) {
+        UserData ud = new UserData();
+        ud.username = u.getUsername();
+        ud.password = u.getPassword();
+        ud.userType = u.getUserType();
+
+        if (u instanceof Customer) {
+            Customer c = (Customer) u;
+            ud.address = c.getAddress();
+            ud.phone = c.getPhone();
+        }
+        return ud;
+    }
+
+    private User toUser(UserData data) {
+        String type = data.userType;
+
+        // If userType is missing (old files), try to infer: common default admin username
+        if (type == null) {
+            if (data.username != null && data.username.equalsIgnoreCase("admin")) {
+                type = "ADMIN";
+                System.out.println("⚠ Infering userType=ADMIN for username '" + data.username + "'");
+            } else if ((data.address == null || data.address.isEmpty()) &&
+                       (data.phone == null || data.phone.isEmpty()) &&
+                       (data.orderHistory == null || data.orderHistory.isEmpty()) &&
+                       (data.reviews == null || data.reviews.isEmpty())) {
+                // Heuristic: no customer-specific data -> treat as ADMIN
+                type = "ADMIN";
+                System.out.println("⚠ Infering userType=ADMIN for username '" + data.username + "' (no customer fields)");
+            } else {
+                type = "CUSTOMER";
+                System.out.println("⚠ Infering userType=CUSTOMER for username '" + data.username + "'");
+            }
+        }
+
+        if ("ADMIN".equals(type)) {
+            return new Admin(data.username, data.password);
+        }
+        Customer customer = new Customer(data.username, data.password, 
+                                        data.address, data.phone);
+        // Older users.json files embed full copies of the history; BookStoreSystem migrates them
+        if (data.orderHistory != null) {
+            customer.getOrderHistory().addAll(data.orderHistory);
+        }
+        if (data.reviews != null) {
+            customer.getReviews().addAll(data.reviews);
+        }
+        return customer;
+    }
+
     // ============== HELPER CLASSES ==============
 
+    // Receives progress while a large data file is being streamed in
+    private interface LoadProgressListener {
+        void onProgress(DataFile file, long itemsLoaded, long bytesRead, long totalBytes);
+    }
+
+    // Counts bytes pulled from the file so progress can be reported as a percentage
+    private static class CountingInputStream extends FilterInputStream {
+        private long count;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                count++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int n = super.read(buffer, offset, length);
+            if (n > 0) {
+                count += n;
+            }
+            return n;
+        }
+
+        long getCount() {
+            return count;
+        }
+    }
+
     // Helper class for JSON serialization of User data
     private static class UserData {
         String username;
@@ -314,25 +741,64 @@ public class DataManager {
         String userType;
         String address;
         String phone;
+        // Legacy only: read from old files for migration, never written
         List<Order> orderHistory;
         List<Review> reviews;
     }
 
-    // Adapter for LocalDateTime JSON serialization
-    private static class LocalDateTimeAdapter implements JsonSerializer<LocalDateTime>, 
-                                                         JsonDeserializer<LocalDateTime> {
-        private static final DateTimeFormatter formatter = DateTimeFormatter.ISO_LOCAL_DATE_TIME;
+    // Streaming adapter for UserData; legacy history fields are read but never written
+    private static class UserDataAdapter extends TypeAdapter<UserData> {
+        private final JsonTypeAdapters.OrderAdapter orderAdapter = new JsonTypeAdapters.OrderAdapter();
+        private final JsonTypeAdapters.ReviewAdapter reviewAdapter = new JsonTypeAdapters.ReviewAdapter();
 
         @Override
-        public JsonElement serialize(LocalDateTime dateTime, Type type, 
-                                    JsonSerializationContext context) {
-            return new JsonPrimitive(dateTime.format(formatter));
+        public void write(JsonWriter out, UserData data) throws IOException {
+            out.beginObject();
+            out.name("username").value(data.username);
+            out.name("password").value(data.password);
+            out.name("userType").value(data.userType);
+            out.name("address").value(data.address);
+            out.name("phone").value(data.phone);
+            out.endObject();
         }
 
         @Override
-        public LocalDateTime deserialize(JsonElement json, Type type, 
-                                        JsonDeserializationContext context) {
-            return LocalDateTime.parse(json.getAsString(), formatter);
+        public UserData read(JsonReader in) throws IOException {
+            UserData data = new UserData();
+            in.beginObject();
+            while (in.hasNext()) {
+                String name = in.nextName();
+                if (in.peek() == JsonToken.NULL) {
+                    in.nextNull();
+                    continue;
+                }
+                switch (name) {
+                    case "username": data.username = in.nextString(); break;
+                    case "password": data.password = in.nextString(); break;
+                    case "userType": data.userType = in.nextString(); break;
+                    case "address": data.address = in.nextString(); break;
+                    case "phone": data.phone = in.nextString(); break;
+                    case "orderHistory":
+                        data.orderHistory = new ArrayList<>();
+                        in.beginArray();
+                        while (in.hasNext()) {
+                            data.orderHistory.add(orderAdapter.read(in));
+                        }
+                        in.endArray();
+                        break;
+                    case "reviews":
+                        data.reviews = new ArrayList<>();
+                        in.beginArray();
+                        while (in.hasNext()) {
+                            data.reviews.add(reviewAdapter.read(in));
+                        }
+                        in.endArray();
+                        break;
+                    default: in.skipValue();
+                }
+            }
+            in.endObject();
+            return data;
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,18 @@
+// FuzzySearchResult.java - Ranked books from a typo-tolerant search
+import java.util.List;
+
+public class FuzzySearchResult {
+    private final List<Book> books;
+    private final boolean complete;
+
+    public FuzzySearchResult(List<Book> books, boolean complete) {
+        this.books = books;
+        this.complete = complete;
+    }
+
+    // Closest matches first
+    public List<Book> getBooks() { return books; }
+
+    // False if the time budget ran out; the books found are still matches, but some may be missing
+    public boolean isComplete() { return complete; }
+}
@@ -0,0 +1,33 @@
+// JournalEntry.java - One appended mutation record in the write-ahead journal
+import com.google.gson.JsonElement;
+
+public class JournalEntry {
+    public static final String BOOK_PUT = "BOOK_PUT";
+    public static final String BOOK_REMOVE = "BOOK_REMOVE";
+    public static final String USER_PUT = "USER_PUT";
+    public static final String ORDER_PUT = "ORDER_PUT";
+    public static final String REVIEW_ADD = "REVIEW_ADD";
+    public static final String CATEGORY_ADD = "CATEGORY_ADD";
+    public static final String ORDER_COUNTER = "ORDER_COUNTER";
+
+    private String op;
+    private JsonElement data;
+
+    public JournalEntry(String op, JsonElement data) {
+        this.op = op;
+        this.data = data;
+    }
+
+    // Default constructor for JSON
+    public JournalEntry() {
+    }
+
+    public String getOp() { return op; }
+
+    public JsonElement getData() { return data; }
+
+    @Override
+    public String toString() {
+        return "JournalEntry{op='" + op + "'}";
+    }
+}
@@ -0,0 +1,242 @@
+// JsonTypeAdapters.java - Streaming Gson adapters for the persisted model classes
+import com.google.gson.GsonBuilder;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Hand-written adapters that read and write fields directly instead of going through
+ * Gson's reflective adapter. The JSON they produce is identical to the reflective output
+ * (same field names and order, nulls omitted), so files stay interchangeable.
+ */
+public class JsonTypeAdapters {
+
+    // LocalDateTime is always registered; the model adapters only when enabled
+    public static GsonBuilder register(GsonBuilder builder, boolean modelAdapters) {
+        builder.registerTypeAdapter(LocalDateTime.class, new LocalDateTimeAdapter().nullSafe());
+        if (!modelAdapters) {
+            return builder;
+        }
+        return builder
+                .registerTypeAdapter(BasicBook.class, new BasicBookAdapter().nullSafe())
+                .registerTypeAdapter(OrderItem.class, new OrderItemAdapter().nullSafe())
+                .registerTypeAdapter(Order.class, new OrderAdapter().nullSafe())
+                .registerTypeAdapter(Review.class, new ReviewAdapter().nullSafe());
+    }
+
+    public static class LocalDateTimeAdapter extends TypeAdapter<LocalDateTime> {
+        private static final DateTimeFormatter formatter = DateTimeFormatter.ISO_LOCAL_DATE_TIME;
+
+        @Override
+        public void write(JsonWriter out, LocalDateTime value) throws IOException {
+            out.value(value.format(formatter));
+        }
+
+        @Override
+        public LocalDateTime read(JsonReader in) throws IOException {
+            return LocalDateTime.parse(in.nextString(), formatter);
+        }
+    }
+
+    public static class BasicBookAdapter extends TypeAdapter<BasicBook> {
+        @Override
+        public void write(JsonWriter out, BasicBook book) throws IOException {
+            out.beginObject();
+            out.name("id").value(book.getId());
+            out.name("title").value(book.getTitle());
+            out.name("author").value(book.getAuthor());
+            out.name("price").value(book.getOriginalPrice());
+            out.name("category").value(book.getCategory());
+            out.name("stock").value(book.getStock());
+            out.name("edition").value(book.getEdition());
+            out.name("coverImage").value(book.getCoverImage());
+            out.name("popularity").value(book.getPopularity());
+            out.name("featured").value(book.getFeaturedMetadata());
+            out.name("discountPercentage").value(book.getDiscountPercentageMetadata());
+            out.endObject();
+        }
+
+        @Override
+        public BasicBook read(JsonReader in) throws IOException {
+            BasicBook book = new BasicBook();
+            in.beginObject();
+            while (in.hasNext()) {
+                String name = in.nextName();
+                if (in.peek() == JsonToken.NULL) {
+                    in.nextNull();
+                    continue;
+                }
+                switch (name) {
+                    case "id": book.setId(in.nextString()); break;
+                    case "title": book.setTitle(in.nextString()); break;
+                    case "author": book.setAuthor(in.nextString()); break;
+                    case "price": book.setPrice(in.nextDouble()); break;
+                    case "category": book.setCategory(in.nextString()); break;
+                    case "stock": book.setStock(in.nextInt()); break;
+                    case "edition": book.setEdition(in.nextString()); break;
+                    case "coverImage": book.setCoverImage(in.nextString()); break;
+                    case "popularity": book.setPopularity(in.nextInt()); break;
+                    case "featured": book.setFeatured(in.nextBoolean()); break;
+                    case "discountPercentage": book.setDiscountPercentage(in.nextDouble()); break;
+                    default: in.skipValue();
+                }
+            }
+            in.endObject();
+            return book;
+        }
+    }
+
+    public static class OrderItemAdapter extends TypeAdapter<OrderItem> {
+        @Override
+        public void write(JsonWriter out, OrderItem item) throws IOException {
+            out.beginObject();
+            out.name("bookId").value(item.getBookId());
+            out.name("bookTitle").value(item.getBookTitle());
+            out.name("bookAuthor").value(item.getBookAuthor());
+            out.name("bookCategory").value(item.getBookCategory());
+            out.name("quantity").value(item.getQuantity());
+            out.name("priceAtPurchase").value(item.getPriceAtPurchase());
+            out.endObject();
+        }
+
+        @Override
+        public OrderItem read(JsonReader in) throws IOException {
+            String bookId = null;
+            String bookTitle = null;
+            String bookAuthor = null;
+            String bookCategory = null;
+            int quantity = 0;
+            double priceAtPurchase = 0.0;
+            in.beginObject();
+            while (in.hasNext()) {
+                String name = in.nextName();
+                if (in.peek() == JsonToken.NULL) {
+                    in.nextNull();
+                    continue;
+                }
+                switch (name) {
+                    case "bookId": bookId = in.nextString(); break;
+                    case "bookTitle": bookTitle = in.nextString(); break;
+                    case "bookAuthor": bookAuthor = in.nextString(); break;
+                    case "bookCategory": bookCategory = in.nextString(); break;
+                    case "quantity": quantity = in.nextInt(); break;
+                    case "priceAtPurchase": priceAtPurchase = in.nextDouble(); break;
+                    default: in.skipValue();
+                }
+            }
+            in.endObject();
+            return new OrderItem(bookId, bookTitle, bookAuthor, bookCategory, quantity, priceAtPurchase);
+        }
+    }
+
+    public static class OrderAdapter extends TypeAdapter<Order> {
+        private final OrderItemAdapter itemAdapter = new OrderItemAdapter();
+        private final LocalDateTimeAdapter dateAdapter = new LocalDateTimeAdapter();
+
+        @Override
+        public void write(JsonWriter out, Order order) throws IOException {
+            out.beginObject();
+            out.name("orderId").value(order.getOrderId());
+            out.name("customerUsername").value(order.getCustomerUsername());
+            out.name("items");
+            out.beginArray();
+            for (OrderItem item : order.getItems()) {
+                itemAdapter.write(out, item);
+            }
+            out.endArray();
+            out.name("totalAmount").value(order.getTotalAmount());
+            out.name("status").value(order.getStatus());
+            if (order.getOrderDate() != null) {
+                out.name("orderDate");
+                dateAdapter.write(out, order.getOrderDate());
+            }
+            out.endObject();
+        }
+
+        @Override
+        public Order read(JsonReader in) throws IOException {
+            String orderId = null;
+            String customerUsername = null;
+            List<OrderItem> items = new ArrayList<>();
+            double totalAmount = 0.0;
+            String status = null;
+            LocalDateTime orderDate = LocalDateTime.now(); // same default as Order()
+            in.beginObject();
+            while (in.hasNext()) {
+                String name = in.nextName();
+                if (in.peek() == JsonToken.NULL) {
+                    in.nextNull();
+                    continue;
+                }
+                switch (name) {
+                    case "orderId": orderId = in.nextString(); break;
+                    case "customerUsername": customerUsername = in.nextString(); break;
+                    case "items":
+                        in.beginArray();
+                        while (in.hasNext()) {
+                            items.add(itemAdapter.read(in));
+                        }
+                        in.endArray();
+                        break;
+                    case "totalAmount": totalAmount = in.nextDouble(); break;
+                    case "status": status = in.nextString(); break;
+                    case "orderDate": orderDate = dateAdapter.read(in); break;
+                    default: in.skipValue();
+                }
+            }
+            in.endObject();
+            return new Order(orderId, customerUsername, items, totalAmount, status, orderDate);
+        }
+    }
+
+    public static class ReviewAdapter extends TypeAdapter<Review> {
+        private final LocalDateTimeAdapter dateAdapter = new LocalDateTimeAdapter();
+
+        @Override
+        public void write(JsonWriter out, Review review) throws IOException {
+            out.beginObject();
+            out.name("bookId").value(review.getBookId());
+            out.name("customerUsername").value(review.getCustomerUsername());
+            out.name("rating").value(review.getRating());
+            out.name("comment").value(review.getComment());
+            if (review.getReviewDate() != null) {
+                out.name("reviewDate");
+                dateAdapter.write(out, review.getReviewDate());
+            }
+            out.endObject();
+        }
+
+        @Override
+        public Review read(JsonReader in) throws IOException {
+            String bookId = null;
+            String customerUsername = null;
+            int rating = 0;
+            String comment = null;
+            LocalDateTime reviewDate = LocalDateTime.now(); // same default as Review()
+            in.beginObject();
+            while (in.hasNext()) {
+                String name = in.nextName();
+                if (in.peek() == JsonToken.NULL) {
+                    in.nextNull();
+                    continue;
+                }
+                switch (name) {
+                    case "bookId": bookId = in.nextString(); break;
+                    case "customerUsername": customerUsername = in.nextString(); break;
+                    case "rating": rating = in.nextInt(); break;
+                    case "comment": comment = in.nextString(); break;
+                    case "reviewDate": reviewDate = dateAdapter.read(in); break;
+                    default: in.skipValue();
+                }
+            }
+            in.endObject();
+            return new Review(bookId, customerUsername, rating, comment, reviewDate);
+        }
+    }
+}
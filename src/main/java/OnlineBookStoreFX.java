@@ -26,16 +26,18 @@ public class OnlineBookStoreFX extends Application {
     private Stage primaryStage;
     private Scene mainScene;
     private BorderPane mainContainer;
+    private static final int BROWSE_PAGE_SIZE = 48;
+    private static final int SUGGESTION_LIMIT = 8;
 
     @Override
     public void start(Stage stage) {
         this.primaryStage = stage;
         this.facade = new BookStoreFacade();
 
-        // Add shutdown hook to save data
+        // Add shutdown hook to write any changes still pending in the background writer
         Runtime.getRuntime().addShutdownHook(new Thread(() -> {
             System.out.println("\n========== Application Closing ==========");
-            facade.saveAllData();
+            facade.flushPendingChanges();
             System.out.println("Goodbye!");
         }));
 
@@ -209,8 +211,11 @@ public class OnlineBookStoreFX extends Application {
                 String phone = phoneField.getText();
 
                 if (!username.isEmpty() && !password.isEmpty()) {
-                    facade.registerCustomer(username, password, address, phone);
-                    showAlert("Success", "Account created successfully! You can now sign in.", Alert.AlertType.INFORMATION);
+                    if (facade.registerCustomer(username, password, address, phone)) {
+                        showAlert("Success", "Account created successfully! You can now sign in.", Alert.AlertType.INFORMATION);
+                    } else {
+                        showAlert("Error", "Username \"" + username + "\" is already taken", Alert.AlertType.ERROR);
+                    }
                 } else {
                     showAlert("Error", "Username and password are required", Alert.AlertType.ERROR);
                 }
@@ -369,6 +374,7 @@ public class OnlineBookStoreFX extends Application {
         searchField.setPromptText("Search books by title or author...");
         searchField.setPrefWidth(400);
         searchField.setPrefHeight(40);
+        ContextMenu suggestionsMenu = new ContextMenu();
 
         ComboBox<String> categoryCombo = new ComboBox<>();
         categoryCombo.setPromptText("All Categories");
@@ -387,7 +393,18 @@ public class OnlineBookStoreFX extends Application {
         searchBtn.setPrefHeight(40);
 
         searchRow.getChildren().addAll(searchField, categoryCombo, sortCombo, searchBtn);
-        searchSection.getChildren().add(searchRow);
+
+        // Facets: counts come with each query, so they cost no extra catalog scans
+        CheckBox inStockCheck = new CheckBox("In stock only");
+        CheckBox featuredCheck = new CheckBox("Featured");
+        CheckBox discountedCheck = new CheckBox("On sale");
+        HBox flagRow = new HBox(16, inStockCheck, featuredCheck, discountedCheck);
+        flagRow.setAlignment(Pos.CENTER_LEFT);
+        FlowPane categoryFacets = new FlowPane(8, 4);
+        FlowPane priceFacets = new FlowPane(8, 4);
+        String[] selectedBand = {null};
+
+        searchSection.getChildren().addAll(searchRow, flagRow, categoryFacets, priceFacets);
 
         // Books grid - Compact 4-column layout
         GridPane booksGrid = new GridPane();
@@ -395,35 +412,98 @@ public class OnlineBookStoreFX extends Application {
         booksGrid.setVgap(20);
         booksGrid.setPadding(new Insets(8, 0, 0, 0));
 
+        // Pager below the grid; one query fetches just the visible page
+        Button prevPageBtn = new Button("← Previous");
+        Button nextPageBtn = new Button("Next →");
+        Label pageLabel = new Label();
+        pageLabel.getStyleClass().add("subtitle-label");
+        HBox pagerRow = new HBox(12, prevPageBtn, pageLabel, nextPageBtn);
+        pagerRow.setAlignment(Pos.CENTER);
+        int[] pageIndex = {0};
+
         Runnable updateBooks = () -> {
             booksGrid.getChildren().clear();
-            List<Map<String, Object>> books = facade.browseAllBooks();
 
-            String searchText = searchField.getText();
-            if (!searchText.isEmpty()) {
-                books = facade.searchBooks(searchText);
-            }
+            BookQuery query = new BookQuery()
+                    .text(searchField.getText().trim())
+                    .page(pageIndex[0] * BROWSE_PAGE_SIZE, BROWSE_PAGE_SIZE);
 
             String selectedCategory = categoryCombo.getValue();
             if (selectedCategory != null && !selectedCategory.equals("All Categories")) {
-                books = facade.filterBooksByCategory(selectedCategory);
+                query.category(selectedCategory);
+            }
+
+            query.inStockOnly(inStockCheck.isSelected())
+                 .featuredOnly(featuredCheck.isSelected())
+                 .discountedOnly(discountedCheck.isSelected())
+                 .includeFacets(true);
+            if (selectedBand[0] != null) {
+                double[] range = BookFacets.bandRange(selectedBand[0]);
+                query.priceRange(range[0], range[1]);
             }
 
             String sortOption = sortCombo.getValue();
             if (sortOption != null) {
                 switch (sortOption) {
                     case "Price: Low to High":
-                        books = facade.sortBooksByPrice(true);
+                        query.sortBy(BookQuery.SortKey.PRICE_ASC);
                         break;
                     case "Price: High to Low":
-                        books = facade.sortBooksByPrice(false);
+                        query.sortBy(BookQuery.SortKey.PRICE_DESC);
                         break;
                     case "Popularity":
-                        books = facade.sortBooksByPopularity();
+                        query.sortBy(BookQuery.SortKey.POPULARITY);
                         break;
                 }
             }
 
+            Map<String, Object> result = facade.queryBooks(query);
+            @SuppressWarnings("unchecked")
+            List<Map<String, Object>> books = (List<Map<String, Object>>) result.get("books");
+            int total = (Integer) result.get("totalMatches");
+            int offset = (Integer) result.get("offset");
+
+            @SuppressWarnings("unchecked")
+            Map<String, Object> facets = (Map<String, Object>) result.get("facets");
+            inStockCheck.setText(String.format("In stock only (%,d)", (Integer) facets.get("inStock")));
+            featuredCheck.setText(String.format("Featured (%,d)", (Integer) facets.get("featured")));
+            discountedCheck.setText(String.format("On sale (%,d)", (Integer) facets.get("discounted")));
+
+            // Picking a facet goes through the category box or the search button, which start a new search
+            categoryFacets.getChildren().clear();
+            @SuppressWarnings("unchecked")
+            Map<String, Integer> categoryCounts = (Map<String, Integer>) facets.get("categories");
+            for (Map.Entry<String, Integer> facet : categoryCounts.entrySet()) {
+                Hyperlink link = new Hyperlink(String.format("%s (%,d)", facet.getKey(), facet.getValue()));
+                link.setOnAction(e -> categoryCombo.setValue(facet.getKey().equalsIgnoreCase(selectedCategory)
+                        ? "All Categories" : facet.getKey()));
+                categoryFacets.getChildren().add(link);
+            }
+
+            priceFacets.getChildren().clear();
+            @SuppressWarnings("unchecked")
+            Map<String, Integer> bandCounts = (Map<String, Integer>) facets.get("priceBands");
+            for (Map.Entry<String, Integer> facet : bandCounts.entrySet()) {
+                boolean selected = facet.getKey().equals(selectedBand[0]);
+                Hyperlink link = new Hyperlink(String.format("%s (%,d)%s", facet.getKey(), facet.getValue(),
+                        selected ? " ✕" : ""));
+                link.setOnAction(e -> {
+                    selectedBand[0] = selected ? null : facet.getKey();
+                    searchBtn.fire();
+                });
+                priceFacets.getChildren().add(link);
+            }
+
+            // Nothing matched the text exactly: offer close matches, e.g. for a misspelt author
+            boolean fuzzy = false;
+            if (total == 0 && query.hasText()) {
+                books = facade.fuzzySearchBooks(query);
+                if (books.size() > BROWSE_PAGE_SIZE) {
+                    books = books.subList(0, BROWSE_PAGE_SIZE);
+                }
+                fuzzy = !books.isEmpty();
+            }
+
             int col = 0;
             int row = 0;
             for (Map<String, Object> book : books) {
@@ -435,16 +515,86 @@ public class OnlineBookStoreFX extends Application {
                     row++;
                 }
             }
+
+            if (fuzzy) {
+                pageLabel.setText("No exact matches – showing " + books.size() + " close matches");
+            } else {
+                pageLabel.setText(total == 0 ? "No books found"
+                        : "Showing " + (offset + 1) + "–" + (offset + books.size()) + " of " + total);
+            }
+            prevPageBtn.setDisable(pageIndex[0] == 0);
+            nextPageBtn.setDisable(!(Boolean) result.get("hasMore"));
+        };
+
+        // Changing the criteria starts again from the first page
+        Runnable newSearch = () -> {
+            pageIndex[0] = 0;
+            updateBooks.run();
         };
+        prevPageBtn.setOnAction(e -> {
+            pageIndex[0]--;
+            updateBooks.run();
+        });
+        nextPageBtn.setOnAction(e -> {
+            pageIndex[0]++;
+            updateBooks.run();
+        });
 
-        searchBtn.setOnAction(e -> updateBooks.run());
-        categoryCombo.setOnAction(e -> updateBooks.run());
-        sortCombo.setOnAction(e -> updateBooks.run());
-        searchField.setOnAction(e -> updateBooks.run());
+        // Set while a picked suggestion updates the controls; the suggestion then runs the search once
+        boolean[] applyingSuggestion = {false};
+        searchBtn.setOnAction(e -> newSearch.run());
+        categoryCombo.setOnAction(e -> {
+            if (!applyingSuggestion[0]) {
+                newSearch.run();
+            }
+        });
+        sortCombo.setOnAction(e -> newSearch.run());
+        inStockCheck.setOnAction(e -> newSearch.run());
+        featuredCheck.setOnAction(e -> newSearch.run());
+        discountedCheck.setOnAction(e -> newSearch.run());
+        searchField.setOnAction(e -> {
+            suggestionsMenu.hide();
+            newSearch.run();
+        });
+
+        // Suggestions while typing; picking one runs the search (a category sets the filter instead)
+        searchField.textProperty().addListener((obs, oldText, text) -> {
+            if (applyingSuggestion[0]) {
+                return;
+            }
+            suggestionsMenu.getItems().clear();
+            if (text == null || text.trim().isEmpty() || !searchField.isFocused()) {
+                suggestionsMenu.hide();
+                return;
+            }
+            for (Map<String, String> suggestion : facade.suggest(text, SUGGESTION_LIMIT)) {
+                String suggestionText = suggestion.get("text");
+                boolean isCategory = "category".equals(suggestion.get("type"));
+                MenuItem item = new MenuItem(suggestionText + "  ·  " + suggestion.get("type"));
+                item.setOnAction(e -> {
+                    applyingSuggestion[0] = true;
+                    if (isCategory) {
+                        searchField.clear();
+                        categoryCombo.setValue(suggestionText);
+                    } else {
+                        searchField.setText(suggestionText);
+                        searchField.positionCaret(suggestionText.length());
+                    }
+                    applyingSuggestion[0] = false;
+                    newSearch.run();
+                });
+                suggestionsMenu.getItems().add(item);
+            }
+            if (suggestionsMenu.getItems().isEmpty()) {
+                suggestionsMenu.hide();
+            } else if (!suggestionsMenu.isShowing()) {
+                suggestionsMenu.show(searchField, Side.BOTTOM, 0, 0);
+            }
+        });
 
         updateBooks.run();
 
-        container.getChildren().addAll(searchSection, booksGrid);
+        container.getChildren().addAll(searchSection, booksGrid, pagerRow);
 
         ScrollPane scroll = new ScrollPane(container);
         scroll.setFitToWidth(true);
@@ -468,7 +618,8 @@ public class OnlineBookStoreFX extends Application {
         double originalPrice = (double) bookDTO.get("originalPrice");
         int stock = (int) bookDTO.get("stock");
         String coverImage = (String) bookDTO.get("coverImage");
-        int popularity = (int) bookDTO.get("popularity");
+        double averageRating = (double) bookDTO.get("averageRating");
+        int reviewCount = (int) bookDTO.get("reviewCount");
         boolean isFeatured = (boolean) bookDTO.get("isFeatured");
         boolean isDiscounted = (boolean) bookDTO.get("isDiscounted");
         double discountPercentage = (double) bookDTO.get("discountPercentage");
@@ -551,7 +702,8 @@ public class OnlineBookStoreFX extends Application {
         Label stockLabel = new Label("Stock: " + stock);
         stockLabel.setStyle("-fx-font-size: 13px; -fx-text-fill: #86868b;");
         
-        Label ratingLabel = new Label("⭐ " + popularity);
+        Label ratingLabel = new Label(reviewCount == 0 ? "⭐ No reviews"
+                : String.format("⭐ %.1f (%d)", averageRating, reviewCount));
         ratingLabel.setStyle("-fx-font-size: 13px; -fx-text-fill: #86868b;");
         
         metaBox.getChildren().addAll(stockLabel, ratingLabel);
@@ -619,6 +771,26 @@ public class OnlineBookStoreFX extends Application {
         content.setPadding(new Insets(24));
         content.setPrefWidth(600);
 
+        // Rating summary
+        Map<String, Object> summary = facade.getBookRatingSummary(bookId);
+        int reviewCount = (int) summary.get("reviewCount");
+        if (reviewCount > 0) {
+            VBox summaryBox = new VBox(4);
+            Label averageLabel = new Label(String.format("⭐ %.1f out of 5 · %d review%s",
+                    (double) summary.get("averageRating"), reviewCount, reviewCount == 1 ? "" : "s"));
+            averageLabel.setStyle("-fx-font-weight: 600; -fx-font-size: 15px;");
+            summaryBox.getChildren().add(averageLabel);
+
+            @SuppressWarnings("unchecked")
+            Map<Integer, Integer> distribution = (Map<Integer, Integer>) summary.get("distribution");
+            for (Map.Entry<Integer, Integer> entry : distribution.entrySet()) {
+                Label starLabel = new Label(entry.getKey() + " star: " + entry.getValue());
+                starLabel.setStyle("-fx-font-size: 13px; -fx-text-fill: #86868b;");
+                summaryBox.getChildren().add(starLabel);
+            }
+            content.getChildren().add(summaryBox);
+        }
+
         // Reviews list
         VBox reviewsList = new VBox(12);
         List<Map<String, Object>> reviews = facade.getBookReviews(bookId);
@@ -1447,14 +1619,9 @@ public class OnlineBookStoreFX extends Application {
 
     private void updateOrdersListAdmin(VBox ordersList, VBox container, String filter) {
         ordersList.getChildren().clear();
-        List<Map<String, Object>> orders = facade.getAllOrders();
-
-        if (!filter.equals("All Orders")) {
-            final String status = filter.toUpperCase();
-            orders = orders.stream()
-                    .filter(o -> o.get("status").equals(status))
-                    .collect(java.util.stream.Collectors.toList());
-        }
+        List<Map<String, Object>> orders = filter.equals("All Orders")
+                ? facade.getAllOrders()
+                : facade.getOrdersByStatus(filter.toUpperCase());
 
         for (Map<String, Object> order : orders) {
             String orderId = (String) order.get("orderId");
@@ -24,6 +24,17 @@ public class Order {
         this.items = new ArrayList<>();
         this.orderDate = LocalDateTime.now();
     }
+    
+    // Restores a persisted order (binary snapshot, JSON type adapter)
+    Order(String orderId, String customerUsername, List<OrderItem> items,
+          double totalAmount, String status, LocalDateTime orderDate) {
+        this.orderId = orderId;
+        this.customerUsername = customerUsername;
+        this.items = new ArrayList<>(items);
+        this.totalAmount = totalAmount;
+        this.status = status;
+        this.orderDate = orderDate;
+    }
 
     public String getOrderId() { return orderId; }
     
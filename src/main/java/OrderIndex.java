@@ -0,0 +1,96 @@
+// OrderIndex.java - Lookup of loaded orders by id, status and customer
+import java.util.*;
+
+/**
+ * Indexes the orders held in memory so order lookups, status screens and customer history cost
+ * O(result) instead of a scan of every order. Results keep the order of the order log (oldest
+ * first): archived orders, which are loaded later but are older than anything active, are given
+ * positions before all existing ones. The indexed status of each order is remembered, so
+ * statusChanged() can move an order whose status was already updated in place.
+ */
+public class OrderIndex {
+    private final Map<String, Order> byId = new HashMap<>();
+    private final Map<String, TreeMap<Long, Order>> byStatus = new HashMap<>();
+    private final Map<String, TreeMap<Long, Order>> byCustomer = new HashMap<>();
+    private final Map<String, Long> positionById = new HashMap<>();
+    private final Map<String, String> statusById = new HashMap<>();
+    private long nextPosition;
+    private long firstPosition;
+
+    public OrderIndex(List<Order> orders) {
+        for (Order order : orders) {
+            add(order);
+        }
+    }
+
+    // Appends a new (or newly loaded) order after all indexed ones
+    public synchronized void add(Order order) {
+        if (!byId.containsKey(order.getOrderId())) {
+            put(order, nextPosition++);
+        }
+    }
+
+    // Inserts older orders (in date order) before all indexed ones
+    public synchronized void addArchived(List<Order> archived) {
+        long position = firstPosition - archived.size();
+        firstPosition = position;
+        for (Order order : archived) {
+            if (!byId.containsKey(order.getOrderId())) {
+                put(order, position);
+            }
+            position++;
+        }
+    }
+
+    public synchronized void statusChanged(Order order) {
+        String oldStatus = statusById.get(order.getOrderId());
+        if (oldStatus == null || oldStatus.equals(order.getStatus())) {
+            return;
+        }
+        long position = positionById.get(order.getOrderId());
+        removeFrom(byStatus, oldStatus, position);
+        statusById.put(order.getOrderId(), order.getStatus());
+        byStatus.computeIfAbsent(order.getStatus(), k -> new TreeMap<>()).put(position, order);
+    }
+
+    public synchronized Order get(String orderId) {
+        return byId.get(orderId);
+    }
+
+    public synchronized List<Order> withStatus(String status) {
+        TreeMap<Long, Order> orders = byStatus.get(status);
+        return orders == null ? new ArrayList<>() : new ArrayList<>(orders.values());
+    }
+
+    public synchronized int countWithStatus(String status) {
+        TreeMap<Long, Order> orders = byStatus.get(status);
+        return orders == null ? 0 : orders.size();
+    }
+
+    public synchronized List<Order> forCustomer(String username) {
+        TreeMap<Long, Order> orders = byCustomer.get(username);
+        return orders == null ? new ArrayList<>() : new ArrayList<>(orders.values());
+    }
+
+    public synchronized int size() {
+        return byId.size();
+    }
+
+    private void put(Order order, long position) {
+        byId.put(order.getOrderId(), order);
+        positionById.put(order.getOrderId(), position);
+        statusById.put(order.getOrderId(), order.getStatus());
+        byStatus.computeIfAbsent(order.getStatus(), k -> new TreeMap<>()).put(position, order);
+        byCustomer.computeIfAbsent(order.getCustomerUsername(), k -> new TreeMap<>()).put(position, order);
+    }
+
+    private void removeFrom(Map<String, TreeMap<Long, Order>> index, String key, long position) {
+        TreeMap<Long, Order> orders = index.get(key);
+        if (orders != null) {
+            orders.remove(position);
+            if (orders.isEmpty()) {
+                index.remove(key);
+            }
+        }
+    }
+}
@@ -19,6 +19,17 @@ public class OrderItem {
     // Default constructor for JSON
     public OrderItem() {
     }
+    
+    // Restores a persisted order line (binary snapshot, JSON type adapter)
+    OrderItem(String bookId, String bookTitle, String bookAuthor, String bookCategory,
+              int quantity, double priceAtPurchase) {
+        this.bookId = bookId;
+        this.bookTitle = bookTitle;
+        this.bookAuthor = bookAuthor;
+        this.bookCategory = bookCategory;
+        this.quantity = quantity;
+        this.priceAtPurchase = priceAtPurchase;
+    }
 
     // Helper method to get Book object (used by GUI)
     // Note: Book should be provided by the calling context (via Facade)
@@ -35,6 +46,11 @@ public class OrderItem {
         return tempBook;
     }
     
+    public String getBookId() { return bookId; }
+    public String getBookTitle() { return bookTitle; }
+    public String getBookAuthor() { return bookAuthor; }
+    public String getBookCategory() { return bookCategory; }
+    
     public int getQuantity() { return quantity; }
     public void setQuantity(int quantity) { this.quantity = quantity; }
     
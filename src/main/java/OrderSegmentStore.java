@@ -0,0 +1,135 @@
+// OrderSegmentStore.java - Month-partitioned order files with sealed archive segments
+import java.io.IOException;
+import java.nio.file.*;
+import java.time.YearMonth;
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Orders are stored one file per month of their order date, e.g. orders/2025-12.json.
+ * Once a month is over and all of its orders are SHIPPED or CANCELLED it never changes
+ * again, so it is rewritten one last time as a sealed (optionally gzip-compressed) segment
+ * such as orders/2025-11.sealed.json.gz and is only read when history or statistics need it.
+ */
+public class OrderSegmentStore {
+    private static final Set<String> FINAL_STATUSES = Set.of("SHIPPED", "CANCELLED");
+    private static final Pattern SEGMENT_NAME =
+            Pattern.compile("(\\d{4}-\\d{2})(\\.sealed)?(\\.json\\.gz|\\.json|\\.bin)");
+
+    public enum Format {
+        JSON(".json"), GZIP_JSON(".json.gz"), BINARY(".bin");
+
+        private final String extension;
+
+        Format(String extension) { this.extension = extension; }
+
+        public String getExtension() { return extension; }
+
+        static Format fromExtension(String extension) {
+            for (Format format : values()) {
+                if (format.extension.equals(extension)) {
+                    return format;
+                }
+            }
+            throw new IllegalArgumentException("Unknown segment extension: " + extension);
+        }
+    }
+
+    private final Path directory;
+
+    public OrderSegmentStore(Path directory) {
+        this.directory = directory;
+    }
+
+    public static YearMonth monthOf(Order order) {
+        return YearMonth.from(order.getOrderDate());
+    }
+
+    public static boolean isFinalStatus(String status) {
+        return FINAL_STATUSES.contains(status);
+    }
+
+    // A past month whose orders are all final can be sealed
+    public static boolean canSeal(YearMonth month, Collection<Order> orders) {
+        if (!month.isBefore(YearMonth.now())) {
+            return false;
+        }
+        for (Order order : orders) {
+            if (!isFinalStatus(order.getStatus())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public boolean hasSegments() {
+        return !listSegments().isEmpty();
+    }
+
+    public List<Segment> listSegments() {
+        List<Segment> segments = new ArrayList<>();
+        if (!Files.isDirectory(directory)) {
+            return segments;
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            files.forEach(path -> {
+                Segment segment = parse(path);
+                if (segment != null) {
+                    segments.add(segment);
+                }
+            });
+        } catch (IOException e) {
+            System.err.println("✗ Error listing order segments: " + e.getMessage());
+        }
+        segments.sort(Comparator.comparing(segment -> segment.month));
+        return segments;
+    }
+
+    public Path pathFor(YearMonth month, boolean sealed, Format format) {
+        return directory.resolve(month + (sealed ? ".sealed" : "") + format.getExtension());
+    }
+
+    // Files of the same month in another state or format, replaced when the month is rewritten
+    public List<Path> otherVariants(Path path) {
+        Segment written = parse(path);
+        List<Path> stale = new ArrayList<>();
+        if (written == null) {
+            return stale;
+        }
+        for (Segment segment : listSegments()) {
+            if (segment.month.equals(written.month) && !segment.path.equals(path)) {
+                stale.add(segment.path);
+            }
+        }
+        return stale;
+    }
+
+    public void ensureDirectory() throws IOException {
+        Files.createDirectories(directory);
+    }
+
+    private Segment parse(Path path) {
+        Matcher matcher = SEGMENT_NAME.matcher(path.getFileName().toString());
+        if (!matcher.matches()) {
+            return null;
+        }
+        return new Segment(YearMonth.parse(matcher.group(1)), matcher.group(2) != null,
+                           Format.fromExtension(matcher.group(3)), path);
+    }
+
+    public static class Segment {
+        public final YearMonth month;
+        public final boolean sealed;
+        public final Format format;
+        public final Path path;
+
+        Segment(YearMonth month, boolean sealed, Format format, Path path) {
+            this.month = month;
+            this.sealed = sealed;
+            this.format = format;
+            this.path = path;
+        }
+    }
+}
@@ -0,0 +1,61 @@
+// PersistenceService.java - Write-behind flushing of pending changes
+import java.util.concurrent.*;
+
+/**
+ * Runs a flush task on a background thread so mutations return at in-memory speed.
+ * Flush requests arriving within the delay window are coalesced into a single flush.
+ */
+public class PersistenceService {
+    private final Runnable flushTask;
+    private final long delayMillis;
+    private final ScheduledExecutorService executor;
+    private boolean flushScheduled;
+
+    public PersistenceService(Runnable flushTask, long delayMillis) {
+        this.flushTask = flushTask;
+        this.delayMillis = delayMillis;
+        this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "bookstore-persistence");
+            // Daemon, so a forgotten flush never blocks JVM exit; shutdown uses flushAndWait()
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    // Schedule a flush unless one is already pending; returns immediately
+    public synchronized void requestFlush() {
+        if (flushScheduled) {
+            return;
+        }
+        flushScheduled = true;
+        executor.schedule(this::runFlush, delayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    // Flush now on the persistence thread and block until it has finished
+    public void flushAndWait() {
+        try {
+            executor.submit(this::runFlush).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            System.err.println("✗ Interrupted while waiting for data flush");
+        } catch (ExecutionException | RejectedExecutionException e) {
+            System.err.println("✗ Error flushing data: " + e.getMessage());
+        }
+    }
+
+    public long getDelayMillis() {
+        return delayMillis;
+    }
+
+    private void runFlush() {
+        synchronized (this) {
+            flushScheduled = false;
+        }
+        try {
+            flushTask.run();
+        } catch (RuntimeException e) {
+            // Keep the persistence thread alive; the next request retries
+            System.err.println("✗ Error during background save: " + e.getMessage());
+        }
+    }
+}
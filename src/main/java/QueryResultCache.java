@@ -0,0 +1,102 @@
+// QueryResultCache.java - Bounded LRU/TTL cache of catalog query results
+import java.util.*;
+import java.util.function.Supplier;
+
+/**
+ * Caches the results of catalog queries (already converted to DTOs) under a normalized key.
+ * Each entry records the catalog version it was computed at; once the catalog changes the
+ * version moves on and older entries are treated as misses, so a result is never served after
+ * a change to the books it was built from. Entries also expire after a time-to-live, and the
+ * least recently used entry is evicted when the cache is full.
+ */
+public class QueryResultCache {
+    private final int maxEntries;
+    private final long ttlNanos;
+    private final LinkedHashMap<String, Entry> entries;
+
+    private long hits;
+    private long misses;
+    private long staleMisses;
+    private long evictions;
+
+    private static class Entry {
+        final Object value;
+        final long version;
+        final long createdAt;
+
+        Entry(Object value, long version, long createdAt) {
+            this.value = value;
+            this.version = version;
+            this.createdAt = createdAt;
+        }
+    }
+
+    // maxEntries 0 disables caching
+    public QueryResultCache(int maxEntries, long ttlMillis) {
+        this.maxEntries = Math.max(0, maxEntries);
+        this.ttlNanos = ttlMillis * 1_000_000L;
+        this.entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                if (size() > QueryResultCache.this.maxEntries) {
+                    evictions++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Returns the cached value for key if it was computed at this catalog version and has not
+     * expired; otherwise computes it with loader and caches it. Callers read the version before
+     * running the query, so a result raced by a catalog change is stored under the old version
+     * and never served. The loader runs outside the cache lock. A key must always map to values
+     * of the same type.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T get(String key, long version, Supplier<T> loader) {
+        if (maxEntries == 0) {
+            return loader.get();
+        }
+        synchronized (this) {
+            Entry entry = entries.get(key);
+            if (entry != null) {
+                if (entry.version == version && System.nanoTime() - entry.createdAt < ttlNanos) {
+                    hits++;
+                    return (T) entry.value;
+                }
+                entries.remove(key);
+                staleMisses++;
+            }
+            misses++;
+        }
+        T value = loader.get();
+        synchronized (this) {
+            Entry current = entries.get(key);
+            // Keep an entry another caller stored for a newer version
+            if (current == null || current.version <= version) {
+                entries.put(key, new Entry(value, version, System.nanoTime()));
+            }
+        }
+        return value;
+    }
+
+    // Share of lookups answered from the cache; 0 before the first lookup
+    public synchronized double getHitRate() {
+        long lookups = hits + misses;
+        return lookups == 0 ? 0.0 : (double) hits / lookups;
+    }
+
+    public synchronized Map<String, Object> getStatistics() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("entries", entries.size());
+        stats.put("maxEntries", maxEntries);
+        stats.put("hits", hits);
+        stats.put("misses", misses);
+        stats.put("staleMisses", staleMisses);
+        stats.put("evictions", evictions);
+        stats.put("hitRate", getHitRate());
+        return stats;
+    }
+}
@@ -20,6 +20,15 @@ public class Review {
     public Review() {
         this.reviewDate = LocalDateTime.now();
     }
+    
+    // Restores a persisted review as stored (JSON type adapter)
+    Review(String bookId, String customerUsername, int rating, String comment, LocalDateTime reviewDate) {
+        this.bookId = bookId;
+        this.customerUsername = customerUsername;
+        this.rating = rating;
+        this.comment = comment;
+        this.reviewDate = reviewDate;
+    }
 
     public String getBookId() { return bookId; }
     public String getCustomerUsername() { return customerUsername; }
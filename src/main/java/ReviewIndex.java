@@ -0,0 +1,57 @@
+// ReviewIndex.java - Reviews grouped by book, with running rating aggregates
+import java.util.*;
+
+/**
+ * Groups reviews by book so a book's reviews cost O(its reviews) instead of a scan of every
+ * review, and keeps each book's review count, rating sum and rating histogram up to date as
+ * reviews are added. Averages and distributions are therefore O(1) per book, which lets a whole
+ * page of the catalog show ratings.
+ */
+public class ReviewIndex {
+    private static final int MAX_RATING = 5;
+
+    private final Map<String, BookReviews> byBook = new HashMap<>();
+
+    private static class BookReviews {
+        final List<Review> reviews = new ArrayList<>();
+        long ratingSum;
+        final int[] histogram = new int[MAX_RATING]; // histogram[r - 1] = reviews rated r
+    }
+
+    public ReviewIndex(List<Review> reviews) {
+        for (Review review : reviews) {
+            add(review);
+        }
+    }
+
+    public synchronized void add(Review review) {
+        BookReviews entry = byBook.computeIfAbsent(review.getBookId(), k -> new BookReviews());
+        // Persisted reviews are restored as stored, so keep the histogram in range
+        int rating = Math.max(1, Math.min(MAX_RATING, review.getRating()));
+        entry.reviews.add(review);
+        entry.ratingSum += rating;
+        entry.histogram[rating - 1]++;
+    }
+
+    public synchronized List<Review> reviewsFor(String bookId) {
+        BookReviews entry = byBook.get(bookId);
+        return entry == null ? new ArrayList<>() : new ArrayList<>(entry.reviews);
+    }
+
+    public synchronized int count(String bookId) {
+        BookReviews entry = byBook.get(bookId);
+        return entry == null ? 0 : entry.reviews.size();
+    }
+
+    // 0 when the book has no reviews
+    public synchronized double averageRating(String bookId) {
+        BookReviews entry = byBook.get(bookId);
+        return entry == null ? 0.0 : (double) entry.ratingSum / entry.reviews.size();
+    }
+
+    // Number of reviews per rating, index 0 holding 1-star reviews
+    public synchronized int[] distribution(String bookId) {
+        BookReviews entry = byBook.get(bookId);
+        return entry == null ? new int[MAX_RATING] : entry.histogram.clone();
+    }
+}
@@ -0,0 +1,137 @@
+// SortedBookIndex.java - Books ordered by a numeric key (effective price, popularity)
+import java.util.*;
+import java.util.function.Predicate;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Keeps the catalog ordered by a key such as the effective (decorated) price, so sorted
+ * browsing walks the index instead of copying and sorting the whole catalog. Each book's key
+ * is read once when it is indexed and stored, so the decorator chain is not evaluated per
+ * comparison and a book can be moved even after its key was changed in place; callers report
+ * such changes through update(). Books with equal keys stay in catalog order in both
+ * directions, matching a stable sort.
+ */
+public class SortedBookIndex {
+    private final ToDoubleFunction<Book> keyFunction;
+    private final TreeMap<Double, TreeMap<Long, Book>> byKey = new TreeMap<>();
+    private final Map<String, Double> keyById = new HashMap<>();
+    private final Map<String, Long> sequenceById = new HashMap<>();
+    private long nextSequence;
+
+    public SortedBookIndex(List<Book> books, ToDoubleFunction<Book> keyFunction) {
+        this.keyFunction = keyFunction;
+        for (Book book : books) {
+            add(book);
+        }
+    }
+
+    public synchronized void add(Book book) {
+        long sequence = nextSequence++;
+        double key = keyFunction.applyAsDouble(book);
+        sequenceById.put(book.getId(), sequence);
+        keyById.put(book.getId(), key);
+        byKey.computeIfAbsent(key, k -> new TreeMap<>()).put(sequence, book);
+    }
+
+    // Re-reads the key of the book with this id (or its replacement) and moves it if needed
+    public synchronized void update(Book book) {
+        Long sequence = sequenceById.get(book.getId());
+        if (sequence == null) {
+            add(book);
+            return;
+        }
+        double oldKey = keyById.get(book.getId());
+        double newKey = keyFunction.applyAsDouble(book);
+        if (Double.compare(oldKey, newKey) != 0) {
+            removeEntry(oldKey, sequence);
+            keyById.put(book.getId(), newKey);
+        }
+        byKey.computeIfAbsent(newKey, k -> new TreeMap<>()).put(sequence, book);
+    }
+
+    public synchronized void remove(String bookId) {
+        Long sequence = sequenceById.remove(bookId);
+        if (sequence != null) {
+            removeEntry(keyById.remove(bookId), sequence);
+        }
+    }
+
+    public synchronized int size() {
+        return sequenceById.size();
+    }
+
+    // All books in key order
+    public List<Book> list(boolean descending) {
+        List<Book> books = new ArrayList<>();
+        scan(null, null, descending, book -> {
+            books.add(book);
+            return true;
+        });
+        return books;
+    }
+
+    // Books with min <= key <= max (null bounds are open) in the order they were indexed, which is
+    // catalog order; only the books in range are read
+    public synchronized List<Book> rangeInCatalogOrder(Double min, Double max) {
+        Collection<TreeMap<Long, Book>> range = range(min, max).values();
+        int count = 0;
+        for (TreeMap<Long, Book> sameKey : range) {
+            count += sameKey.size();
+        }
+        // Sort (sequence, position) pairs packed into longs, a primitive sort; sequences are
+        // assigned per process and stay far below 2^31
+        Book[] inRange = new Book[count];
+        long[] packed = new long[count];
+        int position = 0;
+        for (TreeMap<Long, Book> sameKey : range) {
+            for (Map.Entry<Long, Book> entry : sameKey.entrySet()) {
+                inRange[position] = entry.getValue();
+                packed[position] = (entry.getKey() << 32) | position;
+                position++;
+            }
+        }
+        Arrays.sort(packed);
+        List<Book> books = new ArrayList<>(count);
+        for (long pair : packed) {
+            books.add(inRange[(int) pair]);
+        }
+        return books;
+    }
+
+    /**
+     * Walks the books with min <= key <= max (null bounds are open) in key order, handing each
+     * to the visitor until it returns false. Only the part of the index that is visited is read.
+     */
+    public synchronized void scan(Double min, Double max, boolean descending, Predicate<Book> visitor) {
+        NavigableMap<Double, TreeMap<Long, Book>> range = range(min, max);
+        if (descending) {
+            range = range.descendingMap();
+        }
+        for (TreeMap<Long, Book> sameKey : range.values()) {
+            for (Book book : sameKey.values()) {
+                if (!visitor.test(book)) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private NavigableMap<Double, TreeMap<Long, Book>> range(Double min, Double max) {
+        if (min != null && max != null) {
+            return min > max ? Collections.emptyNavigableMap() : byKey.subMap(min, true, max, true);
+        } else if (min != null) {
+            return byKey.tailMap(min, true);
+        } else if (max != null) {
+            return byKey.headMap(max, true);
+        }
+        return byKey;
+    }
+
+    private void removeEntry(double key, long sequence) {
+        TreeMap<Long, Book> sameKey = byKey.get(key);
+        sameKey.remove(sequence);
+        if (sameKey.isEmpty()) {
+            byKey.remove(key);
+        }
+    }
+}
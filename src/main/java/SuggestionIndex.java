@@ -0,0 +1,129 @@
+// SuggestionIndex.java - Sorted prefix index of titles, authors and categories for autocomplete
+import java.util.*;
+
+/**
+ * Suggests catalog titles, author names and categories for a typed prefix. Phrases are kept in
+ * sorted maps keyed by their lower-cased text, so all phrases starting with a prefix sit next to
+ * each other and a lookup is a range walk that stops after limit suggestions: O(log n + limit)
+ * regardless of catalog size. Phrases that start with the prefix come first, then phrases with
+ * a later word starting with it (e.g. "pott" suggests "Harry Potter ..."). Titles and authors
+ * are reference-counted, so a phrase shared by several books stays until the last one goes.
+ */
+public class SuggestionIndex {
+    public static final String TITLE = "title";
+    public static final String AUTHOR = "author";
+    public static final String CATEGORY = "category";
+
+    // key = lower-cased text from the matching word onwards, '\u0000', kind, '\u0000', phrase
+    private final TreeMap<String, Integer> phrases = new TreeMap<>();
+    private final TreeMap<String, Integer> wordStarts = new TreeMap<>();
+    private final Map<String, String[]> phrasesById = new HashMap<>(); // book id -> {title, author}
+
+    public SuggestionIndex(List<Book> books, Collection<String> categories) {
+        for (Book book : books) {
+            add(book);
+        }
+        for (String category : categories) {
+            addCategory(category);
+        }
+    }
+
+    public synchronized void add(Book book) {
+        String[] entry = {book.getTitle(), book.getAuthor()};
+        phrasesById.put(book.getId(), entry);
+        index(TITLE, entry[0], 1);
+        index(AUTHOR, entry[1], 1);
+    }
+
+    // Re-indexes the book with this id if its title or author changed
+    public synchronized void update(Book book) {
+        String[] entry = phrasesById.get(book.getId());
+        if (entry == null) {
+            add(book);
+            return;
+        }
+        if (!Objects.equals(entry[0], book.getTitle()) || !Objects.equals(entry[1], book.getAuthor())) {
+            remove(book.getId());
+            add(book);
+        }
+    }
+
+    public synchronized void remove(String bookId) {
+        String[] entry = phrasesById.remove(bookId);
+        if (entry != null) {
+            index(TITLE, entry[0], -1);
+            index(AUTHOR, entry[1], -1);
+        }
+    }
+
+    // Categories are kept even without books, like the category list
+    public synchronized void addCategory(String category) {
+        if (category != null && !phrases.containsKey(key(normalize(category).trim(), CATEGORY, category))) {
+            index(CATEGORY, category, 1);
+        }
+    }
+
+    /**
+     * Up to limit distinct suggestions for the prefix (case-insensitive), each a map with "text"
+     * (the phrase as stored) and "type" (title, author or category).
+     */
+    public synchronized List<Map<String, String>> suggest(String prefix, int limit) {
+        List<Map<String, String>> suggestions = new ArrayList<>();
+        String normalized = normalize(prefix).trim();
+        if (normalized.isEmpty() || limit <= 0) {
+            return suggestions;
+        }
+        Set<String> seen = new HashSet<>();
+        collect(phrases, normalized, limit, seen, suggestions);
+        collect(wordStarts, normalized, limit, seen, suggestions);
+        return suggestions;
+    }
+
+    // ============== INTERNALS ==============
+
+    private void collect(TreeMap<String, Integer> index, String prefix, int limit,
+                         Set<String> seen, List<Map<String, String>> suggestions) {
+        for (String key : index.tailMap(prefix, true).keySet()) {
+            if (suggestions.size() >= limit || !key.startsWith(prefix)) {
+                return;
+            }
+            int kindStart = key.indexOf('\u0000') + 1;
+            int phraseStart = key.indexOf('\u0000', kindStart) + 1;
+            String kind = key.substring(kindStart, phraseStart - 1);
+            String phrase = key.substring(phraseStart);
+            // The same phrase can be reached through several of its words
+            if (seen.add(kind + '\u0000' + phrase)) {
+                Map<String, String> suggestion = new HashMap<>();
+                suggestion.put("text", phrase);
+                suggestion.put("type", kind);
+                suggestions.add(suggestion);
+            }
+        }
+    }
+
+    // Adds (delta 1) or drops (delta -1) one reference to the phrase under each of its word starts
+    private void index(String kind, String phrase, int delta) {
+        if (phrase == null || phrase.trim().isEmpty()) {
+            return;
+        }
+        String lower = normalize(phrase).trim();
+        count(phrases, key(lower, kind, phrase), delta);
+        for (int i = 1; i < lower.length(); i++) {
+            if (Character.isLetterOrDigit(lower.charAt(i)) && !Character.isLetterOrDigit(lower.charAt(i - 1))) {
+                count(wordStarts, key(lower.substring(i), kind, phrase), delta);
+            }
+        }
+    }
+
+    private static void count(TreeMap<String, Integer> index, String key, int delta) {
+        index.merge(key, delta, (a, b) -> a + b == 0 ? null : a + b);
+    }
+
+    private static String key(String lowerText, String kind, String phrase) {
+        return lowerText + '\u0000' + kind + '\u0000' + phrase;
+    }
+
+    private static String normalize(String text) {
+        return BookSearchIndex.normalize(text);
+    }
+}
@@ -0,0 +1,310 @@
+// CatalogConsistencyCheck.java - Catalog indexes against brute force, and BOOK_PUT journal replay
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * queries: a seeded catalog is changed one book at a time (popularity, price, stock, decorator
+ * swaps, removals, re-adds), and after every change the id lookup, a random queryBooks request
+ * (text, category, price range, flags, sort, page, facets), the top-K lists and, now and then,
+ * the full sorts, category, low-stock and price-range listings are compared with a brute-force
+ * pass over getAllBooks().
+ *
+ * replay: a 100,000-book catalog is saved as a snapshot, then changed by 20,000 BOOK_PUT records
+ * that stay in the journal; the next start must replay them into the same catalog, in the same
+ * order.
+ *
+ * Usage, after mvn test-compile:
+ *   java -cp target/classes:target/test-classes:lib/gson-2.10.1.jar CatalogConsistencyCheck
+ */
+public class CatalogConsistencyCheck {
+    private static final String[] CATEGORIES = {"IT", "Fiction", "History", "science "};
+    private static final String[] TEXTS = {"title a", "auth1", "b2", "zzz", "e"};
+    private static final Path EXPECTED = Paths.get("expected-catalog.txt");
+    private static final int STEPS = 3000;
+    private static final int REPLAY_BOOKS = 100_000;
+    private static final int REPLAY_UPDATES = 20_000;
+
+    public static void main(String[] args) throws Exception {
+        if (args.length > 0) {
+            runPhase(args[0]);
+            System.exit(0);
+        }
+        CheckSupport.runPhases(CatalogConsistencyCheck.class, "queries");
+
+        Path directory = CheckSupport.scratchDirectory();
+        try {
+            CheckSupport.runPhase(directory, CatalogConsistencyCheck.class, "replay-setup");
+            CheckSupport.updateConfig(directory, "journalCompactThreshold", 1_000_000, "writeBehindDelayMs", 50);
+            CheckSupport.runPhase(directory, CatalogConsistencyCheck.class, "replay-write");
+            CheckSupport.runPhase(directory, CatalogConsistencyCheck.class, "replay-verify");
+        } finally {
+            CheckSupport.deleteRecursively(directory);
+        }
+        System.out.println("✓ CatalogConsistencyCheck passed");
+    }
+
+    private static void runPhase(String phase) throws Exception {
+        BookStoreSystem store = BookStoreSystem.getInstance();
+        switch (phase) {
+            case "queries":
+                queries(store, new Random(4));
+                break;
+            case "replay-setup":
+                for (int i = 0; i < REPLAY_BOOKS; i++) {
+                    store.addBook(new BasicBook("R" + i, "Title " + i, "Author " + (i % 1000), 5 + i % 50,
+                                                CATEGORIES[i % CATEGORIES.length], 10, "", null));
+                }
+                store.flushChanges();
+                break;
+            case "replay-write":
+                Random random = new Random(1);
+                for (int i = 0; i < REPLAY_UPDATES; i++) {
+                    Book book = store.getBookById("R" + random.nextInt(REPLAY_BOOKS));
+                    if (random.nextInt(4) == 0) {
+                        store.updateBook(new DiscountedBook(book.getBaseBook(), 0.1 * (1 + random.nextInt(3))));
+                    } else {
+                        book.setPrice(1 + random.nextInt(90));
+                        book.setStock(random.nextInt(20));
+                        store.updateBook(book);
+                    }
+                }
+                Files.write(EXPECTED, catalogLines(store), StandardCharsets.UTF_8);
+                // Let the write-behind thread append the last records (the delay is 50 ms)
+                Thread.sleep(1000);
+                break;
+            case "replay-verify":
+                List<String> expected = Files.readAllLines(EXPECTED, StandardCharsets.UTF_8);
+                List<String> actual = catalogLines(store);
+                CheckSupport.check(expected.size() == actual.size(),
+                        "replayed catalog has " + actual.size() + " books instead of " + expected.size());
+                for (int i = 0; i < expected.size(); i++) {
+                    CheckSupport.check(expected.get(i).equals(actual.get(i)),
+                            "replayed catalog, position " + i + "\n  expected " + expected.get(i) +
+                            "\n  actual   " + actual.get(i));
+                }
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown phase " + phase);
+        }
+    }
+
+    private static List<String> catalogLines(BookStoreSystem store) {
+        List<String> lines = new ArrayList<>();
+        for (Book book : store.getAllBooks()) {
+            lines.add(book.getId() + " " + book.getPrice() + " " + book.getStock() + " " + book.isDiscounted());
+        }
+        return lines;
+    }
+
+    // ============== QUERIES ==============
+
+    private static void queries(BookStoreSystem store, Random random) {
+        int initialBooks = 3000;
+        for (int i = 0; i < initialBooks; i++) {
+            store.addBook(randomBook(random, "F" + i));
+        }
+        for (int step = 0; step < STEPS; step++) {
+            String id = "F" + random.nextInt(initialBooks);
+            changeBook(store, random, id);
+            List<Book> catalog = store.getAllBooks();
+            Book expected = catalog.stream().filter(book -> book.getId().equals(id)).findFirst().orElse(null);
+            CheckSupport.check(store.getBookById(id) == expected, "step " + step + ": getBookById(" + id + ")");
+
+            BookQuery query = randomQuery(random);
+            compareQuery(store, catalog, query, "step " + step);
+
+            int limit = 1 + random.nextInt(10);
+            List<Book> byPopularity = sorted(catalog, BookQuery.SortKey.POPULARITY);
+            CheckSupport.check(first(byPopularity, limit).equals(store.getTopSellingBooks(limit)),
+                    "step " + step + ": top " + limit);
+            String category = CATEGORIES[random.nextInt(CATEGORIES.length)];
+            BookQuery inCategory = new BookQuery().category(category);
+            List<Book> categoryTop = byPopularity.stream().filter(inCategory::matchesCategory)
+                    .limit(limit).collect(Collectors.toList());
+            CheckSupport.check(popularities(categoryTop).equals(popularities(store.getTopSellingBooks(category, limit))),
+                    "step " + step + ": top " + limit + " in " + category);
+
+            if (step % 250 == 0) {
+                compareListings(store, catalog, "step " + step);
+            }
+        }
+    }
+
+    private static Book randomBook(Random random, String id) {
+        Book book = new BasicBook(id, "Title " + (char) ('a' + random.nextInt(5)) + random.nextInt(100),
+                "Auth" + random.nextInt(50), 1 + random.nextInt(150), CATEGORIES[random.nextInt(CATEGORIES.length)],
+                random.nextInt(8), "1st Edition", "cover.jpg");
+        book.setPopularity(random.nextInt(30));
+        if (random.nextInt(4) == 0) {
+            book = new DiscountedBook(book, (10 + random.nextInt(30)) / 100.0);
+        }
+        if (random.nextInt(5) == 0) {
+            book = new FeaturedBook(book);
+        }
+        return book;
+    }
+
+    private static void changeBook(BookStoreSystem store, Random random, String id) {
+        Book book = store.getBookById(id);
+        if (book == null) {
+            store.addBook(randomBook(random, id));
+            return;
+        }
+        switch (random.nextInt(6)) {
+            case 0:
+                book.setPopularity(Math.max(0, book.getPopularity() + random.nextInt(7) - 3));
+                store.updateBook(book);
+                break;
+            case 1:
+                book.setPrice(1 + random.nextInt(150));
+                store.updateBook(book);
+                break;
+            case 2:
+                store.setBookStock(id, random.nextInt(8));
+                break;
+            case 3:
+                // Swap the decorators on the same base book
+                BasicBook base = book.getBaseBook();
+                store.updateBook(random.nextBoolean() ? new FeaturedBook(base)
+                                                      : new DiscountedBook(base, random.nextInt(5) / 10.0));
+                break;
+            case 4:
+                Book replacement = randomBook(random, id);
+                replacement.setPopularity(book.getPopularity());
+                store.updateBook(replacement);
+                break;
+            default:
+                store.removeBook(id);
+        }
+    }
+
+    private static BookQuery randomQuery(Random random) {
+        BookQuery query = new BookQuery();
+        if (random.nextInt(3) == 0) {
+            query.text(TEXTS[random.nextInt(TEXTS.length)]);
+        }
+        if (random.nextBoolean()) {
+            query.category(CATEGORIES[random.nextInt(CATEGORIES.length)].toLowerCase());
+        }
+        if (random.nextInt(3) == 0) {
+            query.priceRange(random.nextBoolean() ? null : 10.0 + random.nextInt(30),
+                             random.nextBoolean() ? null : 40.0 + random.nextInt(80));
+        }
+        query.featuredOnly(random.nextInt(4) == 0).discountedOnly(random.nextInt(4) == 0)
+             .inStockOnly(random.nextInt(3) == 0).includeFacets(random.nextBoolean())
+             .sortBy(BookQuery.SortKey.values()[random.nextInt(BookQuery.SortKey.values().length)])
+             .page(random.nextInt(60), random.nextInt(4) == 0 ? Integer.MAX_VALUE : 1 + random.nextInt(30));
+        return query;
+    }
+
+    private static void compareQuery(BookStoreSystem store, List<Book> catalog, BookQuery query, String where) {
+        List<Book> base = query.hasText() ? textMatches(catalog, query.getText()) : catalog;
+        List<Book> matches = sorted(base.stream().filter(query::matchesFilters).collect(Collectors.toList()),
+                                    query.getSortKey());
+        int from = Math.min(query.getOffset(), matches.size());
+        int to = (int) Math.min((long) query.getOffset() + query.getLimit(), matches.size());
+        BookQueryResult result = store.queryBooks(query);
+        CheckSupport.check(result.getTotalMatches() == matches.size(),
+                where + ": " + result.getTotalMatches() + " matches instead of " + matches.size());
+        CheckSupport.check(result.getBooks().equals(matches.subList(from, to)), where + ": page differs");
+        if (query.isIncludeFacets()) {
+            compareFacets(base, query, result.getFacets(), where);
+        }
+    }
+
+    // Each facet counts the books passing every other criterion
+    private static void compareFacets(List<Book> base, BookQuery query, BookFacets facets, String where) {
+        Map<String, Integer> categories = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        int[] bands = new int[BookFacets.bandCount()];
+        int featured = 0;
+        int discounted = 0;
+        int inStock = 0;
+        for (Book book : base) {
+            boolean category = query.matchesCategory(book);
+            boolean price = query.matchesPrice(book);
+            boolean featuredOk = query.matchesFeatured(book);
+            boolean discountedOk = query.matchesDiscounted(book);
+            boolean stock = query.matchesStock(book);
+            if (price && featuredOk && discountedOk && stock) {
+                categories.merge(book.getCategory().trim(), 1, Integer::sum);
+            }
+            if (category && featuredOk && discountedOk && stock) {
+                bands[BookFacets.band(book.getPrice())]++;
+            }
+            if (category && price && discountedOk && stock && book.isFeatured()) {
+                featured++;
+            }
+            if (category && price && featuredOk && stock && book.isDiscounted()) {
+                discounted++;
+            }
+            if (category && price && featuredOk && discountedOk && book.getStock() > 0) {
+                inStock++;
+            }
+        }
+        CheckSupport.check(facets.getCategoryCounts().equals(categories),
+                where + ": category facets " + facets.getCategoryCounts() + " instead of " + categories);
+        int[] bandCounts = facets.getPriceBandCounts().values().stream().mapToInt(Integer::intValue).toArray();
+        CheckSupport.check(Arrays.equals(bandCounts, bands),
+                where + ": price band facets " + Arrays.toString(bandCounts) + " instead of " + Arrays.toString(bands));
+        CheckSupport.check(facets.getFeaturedCount() == featured && facets.getDiscountedCount() == discounted &&
+                           facets.getInStockCount() == inStock, where + ": flag facets");
+    }
+
+    private static void compareListings(BookStoreSystem store, List<Book> catalog, String where) {
+        CheckSupport.check(sorted(catalog, BookQuery.SortKey.PRICE_ASC).equals(store.sortByPrice(true)),
+                where + ": price ascending");
+        CheckSupport.check(sorted(catalog, BookQuery.SortKey.PRICE_DESC).equals(store.sortByPrice(false)),
+                where + ": price descending");
+        CheckSupport.check(sorted(catalog, BookQuery.SortKey.POPULARITY).equals(store.sortByPopularity()),
+                where + ": popularity");
+        for (String category : CATEGORIES) {
+            BookQuery query = new BookQuery().category(category);
+            CheckSupport.check(catalog.stream().filter(query::matchesCategory).collect(Collectors.toList())
+                    .equals(store.filterByCategory(category.toUpperCase())), where + ": category " + category);
+        }
+        CheckSupport.check(catalog.stream()
+                .filter(book -> book.getStock() > 0 && book.getStock() <= BookFlagIndex.LOW_STOCK_THRESHOLD)
+                .collect(Collectors.toList()).equals(store.getLowStockBooks()), where + ": low stock");
+        List<Book> inRange = sorted(catalog, BookQuery.SortKey.PRICE_ASC).stream()
+                .filter(book -> book.getPrice() >= 20 && book.getPrice() <= 60).collect(Collectors.toList());
+        CheckSupport.check(inRange.equals(store.getBooksInPriceRange(20.0, 60.0)), where + ": price range");
+    }
+
+    // What searchBooks matched before the index: the text anywhere in the title or author
+    private static List<Book> textMatches(List<Book> catalog, String text) {
+        String lower = text.toLowerCase();
+        return catalog.stream()
+                .filter(book -> book.getTitle().toLowerCase().contains(lower) ||
+                                book.getAuthor().toLowerCase().contains(lower))
+                .collect(Collectors.toList());
+    }
+
+    // A stable sort, so equal keys stay in catalog order
+    private static List<Book> sorted(List<Book> books, BookQuery.SortKey sortKey) {
+        List<Book> sorted = new ArrayList<>(books);
+        switch (sortKey) {
+            case PRICE_ASC:
+                sorted.sort(Comparator.comparingDouble(Book::getPrice));
+                break;
+            case PRICE_DESC:
+                sorted.sort(Comparator.comparingDouble(Book::getPrice).reversed());
+                break;
+            case POPULARITY:
+                sorted.sort(Comparator.comparingInt(Book::getPopularity).reversed());
+                break;
+            default:
+                break;
+        }
+        return sorted;
+    }
+
+    private static List<Book> first(List<Book> books, int count) {
+        return books.subList(0, Math.min(count, books.size()));
+    }
+
+    private static List<Integer> popularities(List<Book> books) {
+        return books.stream().map(Book::getPopularity).collect(Collectors.toList());
+    }
+}
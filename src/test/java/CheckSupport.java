@@ -0,0 +1,102 @@
+// CheckSupport.java - Runs a check's phases in fresh JVMs against a scratch data directory
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.reflect.TypeToken;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * BookStoreSystem is a process-wide singleton that keeps its files in bookstore_data under the
+ * working directory. A check that restarts the store therefore runs each phase as a separate
+ * JVM in a temporary directory, passing the phase name as the first argument of its main.
+ * Child output goes to a log in that directory and is printed only when the phase fails.
+ */
+public final class CheckSupport {
+    private static final int FAILURE_LOG_LINES = 60;
+
+    private CheckSupport() {
+    }
+
+    public static Path scratchDirectory() throws IOException {
+        return Files.createTempDirectory("bookstore-check");
+    }
+
+    // Runs one phase of the check in the directory and throws if it exits non-zero
+    public static void runPhase(Path directory, Class<?> check, String phase) throws IOException, InterruptedException {
+        Path log = directory.resolve(phase + ".log");
+        List<String> command = Arrays.asList(
+                Paths.get(System.getProperty("java.home"), "bin", "java").toString(),
+                "-cp", absoluteClassPath(), check.getName(), phase);
+        Process process = new ProcessBuilder(command)
+                .directory(directory.toFile())
+                .redirectErrorStream(true)
+                .redirectOutput(log.toFile())
+                .start();
+        if (process.waitFor() != 0) {
+            List<String> lines = Files.readAllLines(log, StandardCharsets.UTF_8);
+            for (String line : lines.subList(Math.max(0, lines.size() - FAILURE_LOG_LINES), lines.size())) {
+                System.err.println("  | " + line);
+            }
+            throw new IllegalStateException(check.getName() + " phase \"" + phase + "\" failed");
+        }
+        System.out.println("✓ " + check.getName() + " " + phase);
+    }
+
+    // Runs the phases in order in one scratch directory, which is removed afterwards
+    public static void runPhases(Class<?> check, String... phases) throws IOException, InterruptedException {
+        Path directory = scratchDirectory();
+        try {
+            for (String phase : phases) {
+                runPhase(directory, check, phase);
+            }
+        } finally {
+            deleteRecursively(directory);
+        }
+    }
+
+    // Overrides settings in bookstore_data/config.json under the directory, e.g. between phases
+    public static void updateConfig(Path directory, Object... keysAndValues) throws IOException {
+        Path configFile = directory.resolve("bookstore_data").resolve("config.json");
+        Gson gson = new GsonBuilder().setPrettyPrinting().create();
+        Map<String, Object> config = gson.fromJson(
+                new String(Files.readAllBytes(configFile), StandardCharsets.UTF_8),
+                new TypeToken<LinkedHashMap<String, Object>>(){}.getType());
+        for (int i = 0; i < keysAndValues.length; i += 2) {
+            config.put((String) keysAndValues[i], keysAndValues[i + 1]);
+        }
+        Files.write(configFile, gson.toJson(config).getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static void deleteRecursively(Path directory) throws IOException {
+        if (!Files.exists(directory)) {
+            return;
+        }
+        List<Path> paths;
+        try (Stream<Path> walk = Files.walk(directory)) {
+            paths = walk.sorted(Comparator.reverseOrder()).collect(Collectors.toList());
+        }
+        for (Path path : paths) {
+            Files.deleteIfExists(path);
+        }
+    }
+
+    public static void check(boolean condition, String message) {
+        if (!condition) {
+            throw new IllegalStateException(message);
+        }
+    }
+
+    // The phases run elsewhere, so relative class path entries (target/classes, lib/...) are resolved here
+    private static String absoluteClassPath() {
+        StringJoiner classPath = new StringJoiner(File.pathSeparator);
+        for (String entry : System.getProperty("java.class.path").split(File.pathSeparator)) {
+            classPath.add(Paths.get(entry).toAbsolutePath().toString());
+        }
+        return classPath.toString();
+    }
+}
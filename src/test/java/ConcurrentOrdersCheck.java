@@ -0,0 +1,95 @@
+// ConcurrentOrdersCheck.java - Orders, cancellations and profile edits from 8 threads during flushes
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Eight customers place and cancel orders for one book and edit their profiles concurrently
+ * while snapshots are forced in between, so the persistence thread encodes the store while it
+ * is being changed. Stock taken by the orders that are not cancelled must add back up to the
+ * starting stock, in memory and after a restart, and every customer must come back with all
+ * of their orders and their last profile edit.
+ *
+ * Usage, after mvn test-compile:
+ *   java -cp target/classes:target/test-classes:lib/gson-2.10.1.jar ConcurrentOrdersCheck
+ */
+public class ConcurrentOrdersCheck {
+    private static final String BOOK_ID = "B004";
+    private static final int STARTING_STOCK = 100_000;
+    private static final int THREADS = 8;
+    private static final int ORDERS_PER_THREAD = 200;
+
+    public static void main(String[] args) throws Exception {
+        if (args.length == 0) {
+            CheckSupport.runPhases(ConcurrentOrdersCheck.class, "write", "verify");
+            System.out.println("✓ ConcurrentOrdersCheck passed");
+            return;
+        }
+        if (args[0].equals("write")) {
+            write();
+        }
+        verify(BookStoreSystem.getInstance());
+        System.exit(0);
+    }
+
+    private static void write() throws Exception {
+        BookStoreFacade admin = new BookStoreFacade();
+        admin.login("admin", "admin123");
+        admin.updateBookStock(BOOK_ID, STARTING_STOCK);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Future<?>> customers = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            String username = "customer" + t;
+            customers.add(executor.submit(() -> {
+                BookStoreFacade facade = new BookStoreFacade();
+                facade.registerCustomer(username, "pw", "address", "phone");
+                facade.login(username, "pw");
+                for (int i = 0; i < ORDERS_PER_THREAD; i++) {
+                    facade.addToCart(BOOK_ID, 1);
+                    String orderId = facade.placeOrder();
+                    if (i % 4 == 0) {
+                        facade.cancelOrder(orderId);
+                    }
+                    if (i % 50 == 0) {
+                        facade.updateCustomerInfo("address" + i, "phone" + i);
+                    }
+                    if (i % 37 == 0) {
+                        BookStoreSystem.getInstance().flushChanges();
+                    }
+                }
+                return null;
+            }));
+        }
+        for (Future<?> customer : customers) {
+            customer.get();
+        }
+        executor.shutdown();
+        admin.flushPendingChanges();
+    }
+
+    private static void verify(BookStoreSystem store) {
+        int unitsInActiveOrders = 0;
+        for (Order order : store.getAllOrders()) {
+            if (order.getStatus().equals("CANCELLED")) {
+                continue;
+            }
+            for (OrderItem item : order.getItems()) {
+                if (item.getBook().getId().equals(BOOK_ID)) {
+                    unitsInActiveOrders += item.getQuantity();
+                }
+            }
+        }
+        int stock = store.getBookById(BOOK_ID).getStock();
+        CheckSupport.check(stock + unitsInActiveOrders == STARTING_STOCK,
+                "stock " + stock + " + units in active orders " + unitsInActiveOrders + " != " + STARTING_STOCK);
+        CheckSupport.check(store.getOrderCount() == THREADS * ORDERS_PER_THREAD,
+                store.getOrderCount() + " orders instead of " + THREADS * ORDERS_PER_THREAD);
+        for (int t = 0; t < THREADS; t++) {
+            Customer customer = store.getCustomerByUsername("customer" + t);
+            CheckSupport.check(customer != null, "customer" + t + " is missing");
+            CheckSupport.check(customer.getOrderHistory().size() == ORDERS_PER_THREAD,
+                    "customer" + t + " has " + customer.getOrderHistory().size() + " orders");
+            CheckSupport.check(customer.getAddress().equals("address150") && customer.getPhone().equals("phone150"),
+                    "customer" + t + " profile is " + customer.getAddress() + " / " + customer.getPhone());
+        }
+    }
+}
@@ -0,0 +1,165 @@
+// JournalReplayCheck.java - Restart from snapshot + journal and compare with the state before
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+
+/**
+ * Drives a seeded random mix of orders, cancellations, status changes, stock updates, book
+ * adds/re-wraps/deletes, reviews, categories and profile edits through the facade, with
+ * compaction pushed out of reach so everything after the initial snapshot lives only in
+ * journal.log. The process then stops without a shutdown flush. The next start must rebuild
+ * exactly the same books, orders, customers, reviews, categories and sales figures; so must
+ * the start after the journal has been compacted into a snapshot.
+ *
+ * Usage, after mvn test-compile:
+ *   java -cp target/classes:target/test-classes:lib/gson-2.10.1.jar JournalReplayCheck
+ */
+public class JournalReplayCheck {
+    private static final Path DATA = Paths.get("bookstore_data");
+    private static final Path EXPECTED = Paths.get("expected-state.txt");
+    private static final int STEPS = 400;
+
+    public static void main(String[] args) throws Exception {
+        if (args.length > 0) {
+            runPhase(args[0]);
+            System.exit(0); // the persistence thread is a daemon; nothing is flushed on the way out
+        }
+        Path directory = CheckSupport.scratchDirectory();
+        try {
+            CheckSupport.runPhase(directory, JournalReplayCheck.class, "setup");
+            // A compaction threshold the run never reaches, and a short write-behind delay
+            CheckSupport.updateConfig(directory, "journalCompactThreshold", 1_000_000, "writeBehindDelayMs", 50);
+            CheckSupport.runPhase(directory, JournalReplayCheck.class, "mutate");
+            Path journal = directory.resolve(DATA).resolve("journal.log");
+            CheckSupport.check(Files.exists(journal) && Files.size(journal) > 0, "journal.log was not written");
+            CheckSupport.runPhase(directory, JournalReplayCheck.class, "replay");
+            CheckSupport.runPhase(directory, JournalReplayCheck.class, "compact");
+            CheckSupport.check(!Files.exists(journal) || Files.size(journal) == 0, "journal.log was not compacted");
+            CheckSupport.runPhase(directory, JournalReplayCheck.class, "replay");
+        } finally {
+            CheckSupport.deleteRecursively(directory);
+        }
+        System.out.println("✓ JournalReplayCheck passed");
+    }
+
+    private static void runPhase(String phase) throws Exception {
+        BookStoreSystem store = BookStoreSystem.getInstance();
+        switch (phase) {
+            case "setup":
+                // First start: sample data, written out as the snapshot the journal builds on
+                store.saveAllData();
+                break;
+            case "mutate":
+                mutate(store, new Random(7));
+                Files.write(EXPECTED, state(store), StandardCharsets.UTF_8);
+                // Let the write-behind thread append the last records (the delay is 50 ms)
+                Thread.sleep(1000);
+                break;
+            case "replay":
+                compare(Files.readAllLines(EXPECTED, StandardCharsets.UTF_8), state(store));
+                String nextOrderId = store.generateOrderId();
+                CheckSupport.check(store.getOrderById(nextOrderId) == null,
+                        "order id counter not restored: " + nextOrderId + " already exists");
+                break;
+            case "compact":
+                compare(Files.readAllLines(EXPECTED, StandardCharsets.UTF_8), state(store));
+                store.flushChanges();
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown phase " + phase);
+        }
+    }
+
+    private static void mutate(BookStoreSystem store, Random random) {
+        BookStoreFacade facade = new BookStoreFacade();
+        List<String> customers = new ArrayList<>();
+        List<String> orders = new ArrayList<>();
+        List<String> addedBooks = new ArrayList<>();
+        for (int step = 0; step < STEPS; step++) {
+            List<Book> catalog = store.getAllBooks();
+            Book book = catalog.get(random.nextInt(catalog.size()));
+            int op = customers.isEmpty() ? 0 : random.nextInt(11);
+            if (op == 0) {
+                String username = "customer" + step;
+                facade.registerCustomer(username, "pw", "Street " + step, "555-" + step);
+                customers.add(username);
+            } else if (op <= 2) {
+                facade.login(pick(customers, random), "pw");
+                if (book.getStock() > 0) {
+                    facade.addToCart(book.getId(), 1 + random.nextInt(Math.min(2, book.getStock())));
+                    orders.add(facade.placeOrder());
+                }
+            } else if (op == 3 && !orders.isEmpty()) {
+                facade.cancelOrder(pick(orders, random));
+            } else if (op == 4 && !orders.isEmpty()) {
+                facade.login("admin", "admin123");
+                String orderId = pick(orders, random);
+                if (random.nextBoolean()) {
+                    facade.confirmOrder(orderId);
+                } else {
+                    facade.shipOrder(orderId);
+                }
+            } else if (op == 5) {
+                facade.updateBookStock(book.getId(), random.nextInt(40));
+            } else if (op == 6) {
+                Book added = new BasicBook("N" + step, "Journal Title " + step, "Author " + random.nextInt(5),
+                        5 + random.nextInt(60), random.nextBoolean() ? "Fiction" : "Poetry", 1 + random.nextInt(9),
+                        "1st Edition", "cover.jpg");
+                if (random.nextBoolean()) {
+                    added = new DiscountedBook(added, 0.1 * (1 + random.nextInt(3)));
+                }
+                facade.addBookWithDecorators(added);
+                addedBooks.add(added.getId());
+            } else if (op == 7) {
+                // Swap the decorators on an existing entry
+                BasicBook base = book.getBaseBook();
+                facade.updateBook(random.nextBoolean() ? new FeaturedBook(base) : base);
+            } else if (op == 8 && !addedBooks.isEmpty()) {
+                facade.deleteBook(addedBooks.remove(random.nextInt(addedBooks.size())));
+            } else if (op == 9) {
+                facade.login(pick(customers, random), "pw");
+                facade.addReview(book.getId(), 1 + random.nextInt(5), "review " + step);
+            } else {
+                facade.login(pick(customers, random), "pw");
+                facade.updateCustomerInfo("Avenue " + step, "555-" + step);
+                facade.addCategory("Category " + random.nextInt(4));
+            }
+        }
+    }
+
+    private static List<String> state(BookStoreSystem store) {
+        List<String> state = new ArrayList<>();
+        for (Book book : store.getAllBooks()) {
+            state.add("book " + book.getId() + " | " + book.getTitle() + " | " + book.getCategory() + " | " +
+                      book.getPrice() + " | " + book.getStock() + " | " + book.getPopularity() + " | " +
+                      book.isFeatured() + " | " + book.isDiscounted() + " | " + store.getReviewCount(book.getId()) +
+                      " | " + store.getAverageRating(book.getId()));
+        }
+        for (Order order : store.getAllOrders()) {
+            state.add("order " + order.getOrderId() + " | " + order.getCustomerUsername() + " | " +
+                      order.getStatus() + " | " + order.getTotalAmount() + " | " + order.getItems().size());
+        }
+        for (User user : store.getAllCustomers()) {
+            Customer customer = (Customer) user;
+            state.add("customer " + customer.getUsername() + " | " + customer.getAddress() + " | " +
+                      customer.getPhone() + " | " + customer.getOrderHistory().size() + " orders | " +
+                      customer.getReviews().size() + " reviews");
+        }
+        state.add("categories " + new TreeSet<>(store.getCategories()));
+        state.add("sales " + new TreeMap<>(store.getCategorySalesStatistics()));
+        return state;
+    }
+
+    private static void compare(List<String> expected, List<String> actual) {
+        for (int i = 0; i < Math.min(expected.size(), actual.size()); i++) {
+            CheckSupport.check(expected.get(i).equals(actual.get(i)),
+                    "after restart, line " + i + "\n  expected " + expected.get(i) + "\n  actual   " + actual.get(i));
+        }
+        CheckSupport.check(expected.size() == actual.size(),
+                "after restart, " + actual.size() + " state lines instead of " + expected.size());
+    }
+
+    private static String pick(List<String> values, Random random) {
+        return values.get(random.nextInt(values.size()));
+    }
+}
@@ -0,0 +1,116 @@
+// QueryCacheCheck.java - Cached facade listings against the uncached system queries
+import java.util.*;
+
+/**
+ * Random steps mix orders, stock updates, reviews, added and removed books and decorator swaps
+ * with the listings a browsing customer repeats. After every step each cached facade listing
+ * (browse, search, category, price and popularity sorts, bestsellers, a queryBooks page with
+ * facets) must show the same books, stock, price, popularity, flags and ratings as the same
+ * query run directly on BookStoreSystem, so no change may leave a stale entry behind. The
+ * cache must also have served hits.
+ *
+ * Usage, after mvn test-compile:
+ *   java -cp target/classes:target/test-classes:lib/gson-2.10.1.jar QueryCacheCheck
+ */
+public class QueryCacheCheck {
+    private static final int STEPS = 400;
+    private static final String[] TEXTS = {"the", "a", "code", "", "x"};
+
+    public static void main(String[] args) throws Exception {
+        if (args.length == 0) {
+            CheckSupport.runPhases(QueryCacheCheck.class, "steps");
+            System.out.println("✓ QueryCacheCheck passed");
+            return;
+        }
+        steps(BookStoreSystem.getInstance(), new Random(11));
+        System.exit(0);
+    }
+
+    private static void steps(BookStoreSystem store, Random random) {
+        BookStoreFacade facade = new BookStoreFacade();
+        facade.registerCustomer("reader", "pw", "address", "phone");
+        facade.login("reader", "pw");
+        for (int step = 0; step < STEPS; step++) {
+            List<Book> catalog = store.getAllBooks();
+            Book book = catalog.get(random.nextInt(catalog.size()));
+            switch (random.nextInt(7)) {
+                case 0:
+                    if (book.getStock() > 0) {
+                        facade.addToCart(book.getId(), 1);
+                        facade.placeOrder();
+                    }
+                    break;
+                case 1:
+                    facade.updateBookStock(book.getId(), random.nextInt(50));
+                    break;
+                case 2:
+                    facade.addReview(book.getId(), 1 + random.nextInt(5), "review " + step);
+                    break;
+                case 3:
+                    facade.addBookWithDecorators(new BasicBook("N" + step, "New code " + step, "Author",
+                            5 + random.nextInt(40), "Fiction", 3, "1st Edition", "cover.jpg"));
+                    break;
+                case 4:
+                    if (book.getId().startsWith("N")) {
+                        facade.deleteBook(book.getId());
+                    }
+                    break;
+                case 5:
+                    BasicBook base = book.getBaseBook();
+                    facade.updateBook(random.nextBoolean() ? new FeaturedBook(base) : new DiscountedBook(base, 0.2));
+                    break;
+                default:
+                    break; // reads only
+            }
+            compare(store, facade, TEXTS[random.nextInt(TEXTS.length)], "step " + step);
+            // Repeated reads, as a browsing customer would make them
+            for (int i = 0; i < 3; i++) {
+                facade.searchBooks("code");
+                facade.filterBooksByCategory("Fiction ");
+            }
+        }
+        Map<String, Object> statistics = facade.getQueryCacheStatistics();
+        CheckSupport.check(((Number) statistics.get("hits")).longValue() > 0, "the cache never served a hit: " + statistics);
+    }
+
+    private static void compare(BookStoreSystem store, BookStoreFacade facade, String text, String where) {
+        same(where + ": browse", facade.browseAllBooks(), store, store.getAllBooks());
+        same(where + ": search \"" + text + "\"", facade.searchBooks(text), store, store.searchBooks(text));
+        same(where + ": category", facade.filterBooksByCategory("fiction"), store, store.filterByCategory("fiction"));
+        same(where + ": price sort", facade.sortBooksByPrice(true), store, store.sortByPrice(true));
+        same(where + ": popularity sort", facade.sortBooksByPopularity(), store, store.sortByPopularity());
+        same(where + ": bestsellers", facade.getTopSellingBooks(3), store, store.getTopSellingBooks(3));
+        BookQuery query = new BookQuery().text(text).includeFacets(true).sortBy(BookQuery.SortKey.PRICE_ASC).page(0, 4);
+        Map<String, Object> page = facade.queryBooks(query);
+        BookQueryResult result = store.queryBooks(query);
+        @SuppressWarnings("unchecked")
+        List<Map<String, Object>> books = (List<Map<String, Object>>) page.get("books");
+        same(where + ": query page", books, store, result.getBooks());
+        CheckSupport.check(((Number) page.get("totalMatches")).intValue() == result.getTotalMatches(),
+                where + ": query total");
+        @SuppressWarnings("unchecked")
+        Map<String, Object> facets = (Map<String, Object>) page.get("facets");
+        CheckSupport.check(facets.get("categories").equals(result.getFacets().getCategoryCounts()) &&
+                           ((Number) facets.get("inStock")).intValue() == result.getFacets().getInStockCount(),
+                where + ": query facets");
+    }
+
+    private static void same(String what, List<Map<String, Object>> cached, BookStoreSystem store, List<Book> books) {
+        StringBuilder expected = new StringBuilder();
+        for (Book book : books) {
+            expected.append(book.getId()).append(':').append(book.getStock()).append(':').append(book.getPrice())
+                    .append(':').append(book.getPopularity()).append(':').append(book.isFeatured())
+                    .append(':').append(book.isDiscounted()).append(':').append(store.getReviewCount(book.getId()))
+                    .append(':').append(store.getAverageRating(book.getId())).append(',');
+        }
+        StringBuilder actual = new StringBuilder();
+        for (Map<String, Object> dto : cached) {
+            actual.append(dto.get("id")).append(':').append(dto.get("stock")).append(':').append(dto.get("price"))
+                  .append(':').append(dto.get("popularity")).append(':').append(dto.get("isFeatured"))
+                  .append(':').append(dto.get("isDiscounted")).append(':').append(dto.get("reviewCount"))
+                  .append(':').append(dto.get("averageRating")).append(',');
+        }
+        CheckSupport.check(expected.toString().equals(actual.toString()),
+                what + " is stale\n  expected " + expected + "\n  cached   " + actual);
+    }
+}
@@ -0,0 +1,202 @@
+// StoreBenchmark.java - Repeatable timings for the JSON adapters and the search index
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.reflect.TypeToken;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * Measures on synthetic data (fixed seed, no files touched):
+ *   json   - books and orders written and read with the streaming adapters and with Gson's
+ *            reflective adapters, as DataManager configures them
+ *   search - BookSearchIndex build time, and queries against the old lower-case scan
+ *
+ * Lives with the test sources so it stays out of the application jar. Usage, after
+ * mvn test-compile:
+ *   java -cp target/classes:target/test-classes:lib/gson-2.10.1.jar StoreBenchmark json [books] [orders] [adapters|reflective|both]
+ *   java -cp target/classes:target/test-classes:lib/gson-2.10.1.jar StoreBenchmark search [books]
+ * The first json pass is only a cold-start figure when a single codec is run per JVM.
+ */
+public class StoreBenchmark {
+    private static final int ROUNDS = 6;
+    private static final String[] FIRST_NAMES = {"Robert", "Yuval", "George", "Richard", "Ana", "José", "Zoë"};
+    private static final String[] CATEGORIES = {"IT", "History", "Classics", "Science", "Fiction"};
+    private static final String[] STATUSES = {"PENDING", "CONFIRMED", "SHIPPED", "CANCELLED"};
+
+    private final Random random = new Random(42);
+    private final String[] words = new String[20_000];
+    private final String[] surnames = new String[5_000];
+
+    public static void main(String[] args) {
+        String mode = args.length > 0 ? args[0] : "json";
+        int books = args.length > 1 ? Integer.parseInt(args[1]) : 300_000;
+        StoreBenchmark benchmark = new StoreBenchmark();
+        if (mode.equals("search")) {
+            benchmark.search(books);
+        } else {
+            int orders = args.length > 2 ? Integer.parseInt(args[2]) : 200_000;
+            benchmark.json(books, orders, args.length > 3 ? args[3] : "both");
+        }
+    }
+
+    private StoreBenchmark() {
+        for (int i = 0; i < words.length; i++) {
+            StringBuilder word = new StringBuilder();
+            int length = 3 + random.nextInt(8);
+            for (int k = 0; k < length; k++) {
+                word.append((char) ('a' + random.nextInt(26)));
+            }
+            words[i] = word.toString();
+        }
+        for (int i = 0; i < surnames.length; i++) {
+            surnames[i] = capitalize(words[random.nextInt(words.length)]) + "son";
+        }
+    }
+
+    // ============== JSON ==============
+
+    private void json(int bookCount, int orderCount, String codecs) {
+        List<BasicBook> books = books(bookCount);
+        List<Order> orders = orders(books, orderCount);
+        Type bookList = new TypeToken<List<BasicBook>>(){}.getType();
+        Type orderList = new TypeToken<List<Order>>(){}.getType();
+        System.out.println(bookCount + " books, " + orderCount + " orders; times in ms (first pass / best of " +
+                           ROUNDS + ")");
+        for (String codec : new String[] {"reflective", "adapters"}) {
+            if (!codecs.equals("both") && !codecs.equals(codec)) {
+                continue;
+            }
+            Gson gson = JsonTypeAdapters.register(new GsonBuilder(), codec.equals("adapters"))
+                    .setPrettyPrinting().create();
+            byte[] bookJson = gson.toJson(books).getBytes(StandardCharsets.UTF_8);
+            byte[] orderJson = gson.toJson(orders).getBytes(StandardCharsets.UTF_8);
+            System.out.printf("%-10s books: %d MB, orders: %d MB%n", codec,
+                              bookJson.length >> 20, orderJson.length >> 20);
+            report(codec + " books write", () -> gson.toJson(books, bookList).length());
+            report(codec + " books read", () -> gson.<List<BasicBook>>fromJson(
+                    new String(bookJson, StandardCharsets.UTF_8), bookList).size());
+            report(codec + " orders write", () -> gson.toJson(orders, orderList).length());
+            report(codec + " orders read", () -> gson.<List<Order>>fromJson(
+                    new String(orderJson, StandardCharsets.UTF_8), orderList).size());
+        }
+    }
+
+    private void report(String label, Supplier<Integer> task) {
+        long first = 0;
+        long best = Long.MAX_VALUE;
+        for (int round = 0; round < ROUNDS; round++) {
+            long start = System.nanoTime();
+            task.get();
+            long millis = (System.nanoTime() - start) / 1_000_000;
+            if (round == 0) {
+                first = millis;
+            }
+            best = Math.min(best, millis);
+        }
+        System.out.printf("  %-26s %6d / %6d%n", label, first, best);
+    }
+
+    // ============== SEARCH ==============
+
+    private void search(int bookCount) {
+        List<Book> books = new ArrayList<>(books(bookCount));
+        long start = System.nanoTime();
+        BookSearchIndex index = new BookSearchIndex(books);
+        System.out.println(bookCount + " books: index built in " + (System.nanoTime() - start) / 1_000_000 + " ms");
+
+        List<String> queries = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            Book book = books.get(random.nextInt(books.size()));
+            String text = i % 2 == 0 ? book.getTitle() : book.getAuthor();
+            int from = random.nextInt(text.length());
+            queries.add(text.substring(from, Math.min(text.length(), from + 3 + random.nextInt(5))));
+        }
+        queries.addAll(Arrays.asList("robert", "zo", words[7] + " " + words[11], "qqqqqq"));
+
+        System.out.printf("%-20s %8s %10s %10s%n", "query", "hits", "scan ms", "index ms");
+        for (String query : queries) {
+            List<Book> expected = scan(books, query);
+            List<Book> found = index.search(query);
+            if (!expected.equals(found)) {
+                throw new IllegalStateException("Index and scan disagree on \"" + query + "\"");
+            }
+            double scanMillis = bestMillis(() -> scan(books, query).size());
+            double indexMillis = bestMillis(() -> index.search(query).size());
+            System.out.printf("%-20s %8d %10.3f %10.3f%n", "\"" + query + "\"", found.size(), scanMillis, indexMillis);
+        }
+    }
+
+    // What searchBooks did before the index
+    private static List<Book> scan(List<Book> books, String query) {
+        String lower = query.toLowerCase();
+        return books.stream()
+                .filter(book -> book.getTitle().toLowerCase().contains(lower) ||
+                                book.getAuthor().toLowerCase().contains(lower))
+                .collect(Collectors.toList());
+    }
+
+    private static double bestMillis(Supplier<Integer> task) {
+        long best = Long.MAX_VALUE;
+        for (int round = 0; round < ROUNDS; round++) {
+            long start = System.nanoTime();
+            task.get();
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        return best / 1e6;
+    }
+
+    // ============== DATA ==============
+
+    // Title words are skewed towards the start of the vocabulary, as in a real catalog
+    private List<BasicBook> books(int count) {
+        List<BasicBook> books = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            StringBuilder title = new StringBuilder();
+            int wordCount = 1 + random.nextInt(5);
+            for (int k = 0; k < wordCount; k++) {
+                if (k > 0) {
+                    title.append(random.nextBoolean() ? " " : ": ");
+                }
+                String word = words[(int) Math.min(words.length - 1, Math.abs(random.nextGaussian()) * 3000)];
+                title.append(k == 0 ? capitalize(word) : word);
+            }
+            String author = FIRST_NAMES[random.nextInt(FIRST_NAMES.length)] + " " +
+                            surnames[random.nextInt(surnames.length)];
+            BasicBook book = new BasicBook("B" + i, title.toString(), author, 5 + random.nextInt(9500) / 100.0,
+                    CATEGORIES[random.nextInt(CATEGORIES.length)], random.nextInt(50), "1st Edition",
+                    "cover" + i + ".jpg");
+            book.setPopularity(random.nextInt(1000));
+            books.add(book);
+        }
+        return books;
+    }
+
+    private List<Order> orders(List<BasicBook> books, int count) {
+        LocalDateTime start = LocalDateTime.of(2024, 1, 1, 0, 0);
+        List<Order> orders = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            List<OrderItem> items = new ArrayList<>();
+            double total = 0;
+            int itemCount = 1 + random.nextInt(4);
+            for (int k = 0; k < itemCount; k++) {
+                BasicBook book = books.get(random.nextInt(books.size()));
+                int quantity = 1 + random.nextInt(3);
+                items.add(new OrderItem(book.getId(), book.getTitle(), book.getAuthor(), book.getCategory(),
+                                        quantity, book.getPrice()));
+                total += quantity * book.getPrice();
+            }
+            orders.add(new Order("ORD" + (1000 + i), "customer" + random.nextInt(10_000), items, total,
+                                 STATUSES[random.nextInt(STATUSES.length)],
+                                 start.plusMinutes(random.nextInt(60 * 24 * 700))));
+        }
+        return orders;
+    }
+
+    private static String capitalize(String word) {
+        return Character.toUpperCase(word.charAt(0)) + word.substring(1);
+    }
+}